@@ -0,0 +1,150 @@
+package de.crd.rubybots.battle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.bots.BotConfig;
+import de.crd.rubybots.config.Constants;
+
+/**
+ * Costs of the single steps of a round, without any engine. Bots only move,
+ * so the battlefield keeps its size for the whole run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BattlefieldBenchmark {
+
+	@Param({ "2", "64", "1024" })
+	private int numberOfBots;
+
+	private Battle battle;
+	private Battlefield battlefield;
+	private Action[] moves;
+	private int nextMove;
+	private RoundJournal journal;
+	private BotTimings botTimings;
+	private List<MoveResult> roundOfMoves;
+	private int[] roundOrder;
+	private ActionEvent[] roundEvents;
+	private final SplittableRandom random = new SplittableRandom(42L);
+
+	@Setup
+	public void setUp() {
+		battle = new Battle(null, createBotConfigs(numberOfBots), RoundPacing.headless(), 42L);
+		battlefield = new Battlefield(battle, new SplittableRandom(42L));
+		battlefield.nextRound();
+		moves = new Action[numberOfBots];
+		for (int i = 0; i < numberOfBots; i++) {
+			moves[i] = new Action(i, null, ActionType.MOVE);
+		}
+		// a full round: every bot uses all of its actions
+		journal = new RoundJournal(battlefield, numberOfBots * Constants.MAX_ACTIONS_PER_BOT);
+		for (int i = 0; i < numberOfBots * Constants.MAX_ACTIONS_PER_BOT; i++) {
+			journal.append(battlefield.applyAction(moves[i % numberOfBots]));
+		}
+		botTimings = new BotTimings(numberOfBots);
+		roundOfMoves = new ArrayList<>(numberOfBots);
+		for (int i = 0; i < numberOfBots; i++) {
+			roundOfMoves.add(queueMoves(new MoveResult(i)));
+		}
+		roundOrder = Battle.mergeStableShuffled(roundOfMoves, random);
+		roundEvents = new ActionEvent[roundOrder.length];
+	}
+
+	static List<BotConfig> createBotConfigs(int numberOfBots) {
+		List<BotConfig> botConfigs = new ArrayList<>();
+		for (int i = 0; i < numberOfBots; i++) {
+			botConfigs.add(new BotClasspathConfig("benchmark-bot.rb"));
+		}
+		return botConfigs;
+	}
+
+	@Benchmark
+	public ActionEvent applyAction() {
+		nextMove = (nextMove + 1) % numberOfBots;
+		return battlefield.applyAction(moves[nextMove]);
+	}
+
+	/**
+	 * The apply phase of a full round.
+	 */
+	@Benchmark
+	public ActionEvent[] applyRound() {
+		battlefield.applyActions(roundOfMoves, roundOrder, roundEvents);
+		return roundEvents;
+	}
+
+	/**
+	 * One action followed by the views of all bots, as at the start of a
+	 * round. Subtract {@link #applyAction()} for the snapshot alone.
+	 */
+	@Benchmark
+	public void viewsOfRound(Blackhole blackhole) {
+		blackhole.consume(applyAction());
+		for (int i = 0; i < numberOfBots; i++) {
+			blackhole.consume(battlefield.toView(i));
+		}
+	}
+
+	/**
+	 * What is published after every action.
+	 */
+	@Benchmark
+	public BattleStats publishedStats() {
+		return new BattleStats(0L, numberOfBots, journal, numberOfBots, botTimings);
+	}
+
+	/**
+	 * A listener actually looking at the last stats of a round.
+	 */
+	@Benchmark
+	public Battlefield reconstructedStats() {
+		return new BattleStats(0L, numberOfBots, journal, numberOfBots * Constants.MAX_ACTIONS_PER_BOT, botTimings)
+				.getBattlefield();
+	}
+
+	@Benchmark
+	public BattleStats eagerStats() {
+		return battlefield.getBattleStats();
+	}
+
+	/**
+	 * Includes queuing the actions, as the bots do in every round.
+	 */
+	@Benchmark
+	public int[] mergeActions() {
+		for (MoveResult moveResult : roundOfMoves) {
+			moveResult.clear();
+			queueMoves(moveResult);
+		}
+		return Battle.mergeStableShuffled(roundOfMoves, random);
+	}
+
+	private static MoveResult queueMoves(MoveResult moveResult) {
+		for (int j = 0; j < Constants.MAX_ACTIONS_PER_BOT; j++) {
+			moveResult.add(ActionType.MOVE, -1);
+		}
+		return moveResult;
+	}
+}
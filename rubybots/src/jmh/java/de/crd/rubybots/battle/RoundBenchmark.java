@@ -0,0 +1,128 @@
+package de.crd.rubybots.battle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.script.ScriptException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.crd.rubybots.battle.Battlefield.BattlefieldView;
+import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.bots.BotConfig;
+import de.crd.rubybots.bots.BotJavaConfig;
+import de.crd.rubybots.bots.BotStrategy;
+import de.crd.rubybots.engine.BotCallResult;
+import de.crd.rubybots.engine.Engine;
+
+/**
+ * Whole rounds as executed by a battle. The stub bot does in Java what
+ * benchmark-bot.rb does in Ruby, so comparing both shows the share of JRuby.
+ * The java bot does the same through the engine, like any Java bot.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundBenchmark {
+
+	private static final int ROUNDS = 10;
+
+	@Param({ "2", "64", "1024" })
+	private int numberOfBots;
+
+	@Param({ "stub", "java", "ruby" })
+	private String bot;
+
+	private List<BotConfig> botConfigs;
+	private Engine engine;
+
+	@Setup
+	public void setUp() throws ScriptException {
+		botConfigs = BattlefieldBenchmark.createBotConfigs(numberOfBots);
+		if ("stub".equals(bot)) {
+			engine = new StubBotEngine();
+			return;
+		}
+		engine = new Engine(null);
+		engine.prepareEngine();
+		if ("java".equals(bot)) {
+			List<BotJavaConfig> javaConfigs = new ArrayList<>();
+			for (int i = 0; i < numberOfBots; i++) {
+				javaConfigs.add(new BotJavaConfig(new BenchmarkStrategy()));
+			}
+			botConfigs = new ArrayList<>(javaConfigs);
+			engine.loadBotsFromJava(javaConfigs);
+			return;
+		}
+		List<BotClasspathConfig> classpathConfigs = new ArrayList<>();
+		for (BotConfig botConfig : botConfigs) {
+			classpathConfigs.add((BotClasspathConfig) botConfig);
+		}
+		engine.loadBotsFromClasspath(classpathConfigs);
+	}
+
+	@TearDown
+	public void tearDown() {
+		engine.shutdown();
+	}
+
+	/**
+	 * Setting up the battle is spread over its rounds.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(ROUNDS)
+	public Battle round() {
+		Battle battle = new Battle(ROUNDS, botConfigs, RoundPacing.headless(), 42L);
+		battle.execute(engine);
+		return battle;
+	}
+
+	/**
+	 * Answers every call right away, without JRuby.
+	 */
+	static class StubBotEngine extends Engine {
+
+		private final BotStrategy strategy = new BenchmarkStrategy();
+
+		StubBotEngine() {
+			super(null);
+		}
+
+		@Override
+		public List<BotCallResult> callBots(List<Context> contexts) {
+			List<BotCallResult> results = new ArrayList<>(contexts.size());
+			for (Context context : contexts) {
+				strategy.play(context);
+				results.add(new BotCallResult(context, null));
+			}
+			return results;
+		}
+	}
+
+	static class BenchmarkStrategy implements BotStrategy {
+
+		@Override
+		public void play(Context context) {
+			BattlefieldView battlefield = context.getBattlefield();
+			battlefield.whoIsAtPosition((battlefield.getMyPosition() + 1) % battlefield.getSize());
+			battlefield.move();
+			battlefield.move();
+		}
+	}
+}
@@ -0,0 +1,6 @@
+# does the same as the stub bot of the round benchmark
+battlefield = $context.battlefield
+battlefield.whoIsAtPosition((battlefield.getMyPosition() + 1) % battlefield.getSize())
+2.times do
+	battlefield.move()
+end
@@ -0,0 +1,32 @@
+package de.crd.rubybots.battle;
+
+import java.util.Collection;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs every benchmark once in-process, so a broken benchmark fails the
+ * build instead of a long benchmark run.
+ */
+public class BenchmarkTest extends TestCase {
+
+	private static Collection<RunResult> runOnce(Class<?> benchmark) throws RunnerException {
+		return new Runner(new OptionsBuilder().include(benchmark.getName() + "\\.").param("numberOfBots", "2")
+				.forks(0).warmupIterations(0).measurementIterations(1)
+				.measurementTime(TimeValue.milliseconds(10L)).shouldFailOnError(true).build()).run();
+	}
+
+	public void testBattlefieldBenchmarksRun() throws RunnerException {
+		assertEquals(7, runOnce(BattlefieldBenchmark.class).size());
+	}
+
+	public void testRoundBenchmarksRunWithEveryBot() throws RunnerException {
+		assertEquals(3, runOnce(RoundBenchmark.class).size());
+	}
+}
@@ -4,8 +4,15 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -13,21 +20,44 @@ import java.util.stream.Collectors;
 import javax.script.ScriptException;
 
 import de.crd.rubybots.battle.Battle;
+import de.crd.rubybots.battle.BattleRecorder;
+import de.crd.rubybots.battle.BattleRecording;
 import de.crd.rubybots.battle.BattleStats;
+import de.crd.rubybots.battle.RoundPacing;
+import de.crd.rubybots.battle.Simulation;
+import de.crd.rubybots.battle.SimulationResult;
 import de.crd.rubybots.bots.BotClasspathConfig;
 import de.crd.rubybots.bots.BotConfig;
 import de.crd.rubybots.bots.BotFileConfig;
+import de.crd.rubybots.bots.BotJavaConfig;
+import de.crd.rubybots.bots.BotWatcher;
+import de.crd.rubybots.bots.ScriptBotConfig;
+import de.crd.rubybots.config.CommandLineOptions;
+import de.crd.rubybots.config.Constants;
+import de.crd.rubybots.engine.BattleStatsPublisher.DeliveryMode;
 import de.crd.rubybots.engine.Engine;
+import de.crd.rubybots.engine.EngineConfig;
+import de.crd.rubybots.engine.EngineConfig.ActionLimitPolicy;
+import de.crd.rubybots.engine.EngineConfig.CompileMode;
+import de.crd.rubybots.metrics.Metrics;
+import de.crd.rubybots.tournament.Leaderboard;
+import de.crd.rubybots.tournament.PairingStrategy;
+import de.crd.rubybots.tournament.Tournament;
 
 public class RubyBots {
 
 	private static final Logger LOGGER = Logger.getLogger(RubyBots.class.getSimpleName());
 	private static final List<BotConfig> DEFAULT_BOTS = new ArrayList<>();
 	private static final int DEFAULT_ROUNDS = 5;
+	private static final int DEFAULT_TOURNAMENT_ROUNDS = 500;
+	private static final String JAVA_BOT_PREFIX = "java:";
 
 	private final List<BotConfig> botConfigs;
 	private final Engine mEngine;
-	private boolean initialized;
+	private volatile boolean initialized;
+	private volatile boolean trace;
+	private BotWatcher botWatcher;
+	private final Set<Battle> runningBattles = ConcurrentHashMap.newKeySet();
 
 	static {
 		// honor the simple minds
@@ -40,13 +70,35 @@ public class RubyBots {
 		System.out.println(
 				"\n\n\n*************************\nRubyBots v0.1\nCreated by crd\n*************************\n\n");
 		setExceptionHandler();
-		List<String> processedArguments = processArguments(args);
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.hasOption("replay")) {
+			printReplay(options);
+			return;
+		}
+		List<String> processedArguments = processArguments(options.getArguments());
 		List<BotConfig> botConfig = getBotsFromArgs(processedArguments);
-		RubyBots rubyBots = new RubyBots(getDefaultBattleStatsUpdateListener(), botConfig);
+		if (options.hasOption("simulate")) {
+			simulate(botConfig, options);
+			return;
+		}
+		RubyBots rubyBots = new RubyBots(null, botConfig, getEngineConfig(options));
+		rubyBots.setTrace(options.hasOption("trace"));
+		if (options.hasOption("watch")) {
+			rubyBots.watchBots();
+		}
+		if (options.hasOption("tournament")) {
+			executeTournament(rubyBots, options);
+			return;
+		}
+		rubyBots.subscribe(getDefaultBattleStatsUpdateListener(), DeliveryMode.LATEST, 1,
+				Long.parseLong(options.getOption("stats-interval", "0")));
 		Battle battle = null;
-		if ((battle = rubyBots.startBattle(null)) == null) {
+		String recording = options.getOption("record", null);
+		if ((battle = rubyBots.startBattle(getNumberOfRounds(options, null), getRoundPacing(options),
+				getSeed(options), recording != null ? new File(recording) : null)) == null) {
 			System.exit(-1);
 		}
+		dumpMetrics(rubyBots, options);
 		rubyBots.shutdown();
 		try {
 			Thread.sleep(1000L);
@@ -56,23 +108,158 @@ public class RubyBots {
 		System.exit(0);
 	}
 
-	private static List<String> processArguments(String[] args) {
+	private static void dumpMetrics(RubyBots rubyBots, CommandLineOptions options) {
+		String file = options.getOption("metrics", null);
+		if (file == null) {
+			return;
+		}
+		try {
+			rubyBots.getMetrics().dump(new File(file));
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Metrics could not be written: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Prints the stats of a recorded round without executing any bot.
+	 * <code>--round</code> defaults to the last one.
+	 */
+	private static void printReplay(CommandLineOptions options) throws IOException {
+		try (BattleRecording recording = new BattleRecording(new File(options.getOption("replay", null)))) {
+			String round = options.getOption("round", null);
+			BattleStats battleStats = recording
+					.getBattleStats(round != null ? Integer.parseInt(round) : recording.getNumberOfRounds());
+			System.out.println(battleStats.getComprehensiveStats());
+		}
+	}
+
+	/**
+	 * Plays the given Java bots against each other without an engine.
+	 * <code>--simulate</code> is the number of battles.
+	 */
+	private static void simulate(List<BotConfig> botConfigs, CommandLineOptions options) {
+		List<BotJavaConfig> javaBots = getConfigsOfType(botConfigs, BotJavaConfig.class);
+		if (javaBots.size() != botConfigs.size()) {
+			throw new IllegalArgumentException("Only Java bots can be simulated.");
+		}
+		Long seed = getSeed(options);
+		if (seed == null) {
+			seed = new SplittableRandom().nextLong();
+		}
+		Simulation simulation = new Simulation(javaBots, getNumberOfRounds(options, DEFAULT_TOURNAMENT_ROUNDS));
+		SimulationResult result = simulation.run(Integer.parseInt(options.getOption("simulate", "10000")), seed);
+		System.out.println("Seed: " + seed);
+		System.out.println(result);
+	}
+
+	private static void executeTournament(RubyBots rubyBots, CommandLineOptions options) {
+		int workers = Integer.parseInt(
+				options.getOption("workers", String.valueOf(Runtime.getRuntime().availableProcessors())));
+		Long seed = getSeed(options);
+		Leaderboard leaderboard = rubyBots.startTournament(getPairingStrategy(options, seed),
+				getNumberOfRounds(options, DEFAULT_TOURNAMENT_ROUNDS), workers, seed);
+		if (leaderboard == null) {
+			System.exit(-1);
+		}
+		dumpMetrics(rubyBots, options);
+		rubyBots.shutdown();
+		System.out.println(leaderboard);
+		System.exit(0);
+	}
+
+	/**
+	 * Accepts <code>round-robin</code>, <code>swiss</code> and
+	 * <code>random</code>. <code>--battles</code> is the number of repetitions,
+	 * Swiss rounds or random battles respectively.
+	 */
+	private static PairingStrategy getPairingStrategy(CommandLineOptions options, Long seed) {
+		Random random = seed != null ? new Random(seed) : new Random();
+		int botsPerBattle = Integer.parseInt(options.getOption("bots-per-battle", "2"));
+		String pairing = options.getOption("tournament", "round-robin");
+		switch (pairing) {
+		case "round-robin":
+			return PairingStrategy.roundRobin(botsPerBattle, Integer.parseInt(options.getOption("battles", "1")));
+		case "swiss":
+			return PairingStrategy.swiss(botsPerBattle, Integer.parseInt(options.getOption("battles", "5")),
+					random);
+		case "random":
+			return PairingStrategy.random(botsPerBattle, Integer.parseInt(options.getOption("battles", "100")),
+					random);
+		default:
+			throw new IllegalArgumentException("Unknown tournament pairing: " + pairing);
+		}
+	}
+
+	private static Integer getNumberOfRounds(CommandLineOptions options, Integer defaultRounds) {
+		String rounds = options.getOption("rounds", null);
+		return rounds != null ? Integer.valueOf(rounds) : defaultRounds;
+	}
+
+	private static Long getSeed(CommandLineOptions options) {
+		String seed = options.getOption("seed", null);
+		return seed != null ? Long.valueOf(seed) : null;
+	}
+
+	private static List<String> processArguments(List<String> args) {
 		List<String> processedArgs = new ArrayList<>();
-		if (args == null || args.length == 0) {
+		if (args == null || args.isEmpty()) {
 			return processedArgs;
 		}
-		processedArgs.add(args[0]);
-		for (int i = 1; i < args.length; i++) {
-			String arg = args[i];
+		processedArgs.add(args.get(0));
+		for (int i = 1; i < args.size(); i++) {
+			String arg = args.get(i);
 			if (".".equals(arg)) {
 				processedArgs.add(processedArgs.get(processedArgs.size() - 1));
 			} else {
-				processedArgs.add(args[i]);
+				processedArgs.add(arg);
 			}
 		}
 		return processedArgs;
 	}
 
+	/**
+	 * Accepts <code>headless</code>, <code>fixed[:millis]</code> and
+	 * <code>budget:millis</code>.
+	 */
+	private static RoundPacing getRoundPacing(CommandLineOptions options) {
+		String[] pacing = options.getOption("pacing", "fixed").split(":");
+		switch (pacing[0]) {
+		case "headless":
+			return RoundPacing.headless();
+		case "fixed":
+			return RoundPacing.fixedRate(pacing.length > 1 ? Long.parseLong(pacing[1]) : Constants.TIME_BETWEEN_ROUNDS);
+		case "budget":
+			if (pacing.length < 2) {
+				throw new IllegalArgumentException("The frame budget needs a time per round.");
+			}
+			return RoundPacing.frameBudget(Long.parseLong(pacing[1]));
+		default:
+			throw new IllegalArgumentException("Unknown pacing: " + pacing[0]);
+		}
+	}
+
+	private static EngineConfig getEngineConfig(CommandLineOptions options) {
+		EngineConfig engineConfig = new EngineConfig();
+		String compileMode = options.getOption("compile", engineConfig.getCompileMode().name());
+		engineConfig.setCompileMode(CompileMode.valueOf(compileMode.toUpperCase()));
+		if (options.hasOption("parallel")) {
+			String parallelism = options.getOption("parallel",
+					String.valueOf(Runtime.getRuntime().availableProcessors()));
+			engineConfig.setParallelism(Integer.parseInt(parallelism));
+		}
+		engineConfig.setTurnTimeoutMillis(Long.parseLong(options.getOption("turn-timeout", "0")));
+		engineConfig.setCpuBudgetMillis(Long.parseLong(options.getOption("cpu-budget", "0")));
+		String actionLimitPolicy = options.getOption("action-limit", engineConfig.getActionLimitPolicy().name());
+		engineConfig.setActionLimitPolicy(ActionLimitPolicy.valueOf(actionLimitPolicy.toUpperCase()));
+		String botCache = options.getOption("bot-cache", null);
+		engineConfig.setBotCacheDirectory(botCache != null ? new File(botCache) : null);
+		String botCacheSize = options.getOption("bot-cache-size", null);
+		if (botCacheSize != null) {
+			engineConfig.setBotCacheMaxBytes(Long.parseLong(botCacheSize) * 1024 * 1024);
+		}
+		return engineConfig;
+	}
+
 	private static BattleStatsUpdateListener getDefaultBattleStatsUpdateListener() {
 		return new BattleStatsUpdateListener() {
 
@@ -89,24 +276,176 @@ public class RubyBots {
 	}
 
 	public RubyBots(BattleStatsUpdateListener listener, List<BotConfig> botConfigs) {
-		this.mEngine = new Engine(listener);
+		this(listener, botConfigs, new EngineConfig());
+	}
+
+	public RubyBots(BattleStatsUpdateListener listener, List<BotConfig> botConfigs, EngineConfig engineConfig) {
+		this.mEngine = new Engine(listener, engineConfig);
 		this.botConfigs = botConfigs;
 	}
 
 	public void shutdown() {
+		if (botWatcher != null) {
+			try {
+				botWatcher.close();
+			} catch (IOException e) {
+				LOGGER.log(Level.FINE, "Bot watcher could not be closed: " + e.getMessage());
+			}
+		}
 		mEngine.shutdown();
 	}
 
+	/**
+	 * Also available through JMX while the engine is running.
+	 */
+	public Metrics getMetrics() {
+		return mEngine.getMetrics();
+	}
+
+	/**
+	 * Logs the events of the running and all following battles at INFO, see
+	 * {@link Battle#setTrace(boolean)}. Can be switched at any time.
+	 */
+	public void setTrace(boolean trace) {
+		this.trace = trace;
+		for (Battle battle : runningBattles) {
+			battle.setTrace(trace);
+		}
+	}
+
+	/**
+	 * API ENTRY POINT
+	 * 
+	 * Watches the directories of the bots loaded from files. A bot whose file
+	 * changes is compiled into the running engine, battles started afterwards
+	 * use the new version. This includes the remaining battles of a running
+	 * tournament. New files are not picked up.
+	 */
+	public synchronized void watchBots() throws IOException {
+		if (botWatcher != null) {
+			return;
+		}
+		Map<Path, List<BotFileConfig>> botsByFile = new HashMap<>();
+		for (BotFileConfig botConfig : getConfigsOfType(botConfigs, BotFileConfig.class)) {
+			botsByFile.computeIfAbsent(getPath(botConfig.getBotFile()), path -> new ArrayList<>()).add(botConfig);
+		}
+		botWatcher = new BotWatcher(file -> reloadBots(botsByFile.get(getPath(file))));
+		for (Path botFile : botsByFile.keySet()) {
+			botWatcher.watch(botFile.getParent().toFile());
+		}
+	}
+
+	private static Path getPath(File file) {
+		return file.toPath().toAbsolutePath().normalize();
+	}
+
+	/**
+	 * @param botConfigs
+	 *            all bots loaded from the changed file, null if none was
+	 */
+	private void reloadBots(List<BotFileConfig> botConfigs) {
+		if (botConfigs == null || !initialized) {
+			return; // an engine still to be prepared reads the current version anyway
+		}
+		for (BotFileConfig botConfig : botConfigs) {
+			try {
+				mEngine.reloadBot(botConfig);
+				LOGGER.log(Level.INFO, "Reloaded bot " + botConfig.getName() + ".");
+			} catch (IOException | IllegalStateException e) {
+				LOGGER.log(Level.SEVERE,
+						"Bot " + botConfig.getName() + " could not be reloaded, keeping the previous version: "
+								+ e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Display listeners should use {@link DeliveryMode#LATEST}, recorders
+	 * {@link DeliveryMode#LOSSLESS}.
+	 */
+	public void subscribe(BattleStatsUpdateListener listener, DeliveryMode deliveryMode, int capacity,
+			long minIntervalMillis) {
+		mEngine.getBattleStatsPublisher().subscribe(listener, deliveryMode, capacity, minIntervalMillis);
+	}
+
 	/**
 	 * API ENTRY POINT
 	 */
 	public Battle startBattle(Integer numberOfRounds) {
+		return startBattle(numberOfRounds, RoundPacing.fixedRate(Constants.TIME_BETWEEN_ROUNDS));
+	}
+
+	/**
+	 * API ENTRY POINT
+	 */
+	public Battle startBattle(Integer numberOfRounds, RoundPacing roundPacing) {
+		return startBattle(numberOfRounds, roundPacing, null);
+	}
+
+	/**
+	 * API ENTRY POINT
+	 *
+	 * @param seed
+	 *            null for a random one, see {@link Battle#getSeed()}
+	 */
+	public Battle startBattle(Integer numberOfRounds, RoundPacing roundPacing, Long seed) {
+		return startBattle(numberOfRounds, roundPacing, seed, null);
+	}
+
+	/**
+	 * API ENTRY POINT
+	 *
+	 * @param recording
+	 *            file every action is recorded to, see {@link BattleRecording},
+	 *            or null
+	 */
+	public Battle startBattle(Integer numberOfRounds, RoundPacing roundPacing, Long seed, File recording) {
+		if (!init()) {
+			return null;
+		}
+		Battle battle = seed != null ? new Battle(numberOfRounds, botConfigs, roundPacing, seed)
+				: new Battle(numberOfRounds, botConfigs, roundPacing);
+		runningBattles.add(battle);
+		battle.setTrace(trace);
+		try {
+			if (recording == null) {
+				battle.execute(mEngine);
+				return battle;
+			}
+			try (BattleRecorder recorder = new BattleRecorder(recording, BattleRecorder.DEFAULT_KEYFRAME_INTERVAL)) {
+				battle.setRecorder(recorder);
+				battle.execute(mEngine);
+			} catch (IOException e) {
+				LOGGER.log(Level.SEVERE, "Battle could not be recorded: " + e.getMessage());
+			}
+			return battle;
+		} finally {
+			runningBattles.remove(battle);
+		}
+	}
+
+	/**
+	 * API ENTRY POINT
+	 */
+	public Leaderboard startTournament(PairingStrategy pairingStrategy, Integer numberOfRounds, int workers) {
+		return startTournament(pairingStrategy, numberOfRounds, workers, null);
+	}
+
+	/**
+	 * API ENTRY POINT
+	 *
+	 * @param seed
+	 *            null for a random one
+	 */
+	public Leaderboard startTournament(PairingStrategy pairingStrategy, Integer numberOfRounds, int workers,
+			Long seed) {
 		if (!init()) {
 			return null;
 		}
-		Battle battle = new Battle(numberOfRounds, botConfigs);
-		battle.execute(mEngine);
-		return battle;
+		Tournament tournament = seed != null
+				? new Tournament(botConfigs, pairingStrategy, numberOfRounds, workers, seed)
+				: new Tournament(botConfigs, pairingStrategy, numberOfRounds, workers);
+		return tournament.execute(mEngine);
 	}
 
 	private static void printFinalStats(Battle battle) {
@@ -125,7 +464,7 @@ public class RubyBots {
 		});
 	}
 
-	private static List<BotConfig> getBotsFromArgs(List<String> args) {
+	private static List<BotConfig> getBotsFromArgs(List<String> args) throws IOException {
 		if (args == null || args.size() == 0) {
 			System.out.println("Using default bots.");
 			return DEFAULT_BOTS;
@@ -133,14 +472,20 @@ public class RubyBots {
 		return getBotFileConfigs(args);
 	}
 
-	private static List<BotConfig> getBotFileConfigs(List<String> args) {
+	static List<BotConfig> getBotFileConfigs(List<String> args) throws IOException {
 		List<BotConfig> botConfigs = new ArrayList<>();
 		for (String arg : args) {
+			if (arg.startsWith(JAVA_BOT_PREFIX)) {
+				botConfigs.add(BotJavaConfig.forClass(arg.substring(JAVA_BOT_PREFIX.length())));
+				continue;
+			}
 			File argFile = new File(arg);
 			if (!argFile.exists()) {
 				throw new IllegalArgumentException("File not found.");
 			}
-			if (!argFile.isDirectory()) {
+			if (isJar(argFile)) {
+				botConfigs.addAll(BotJavaConfig.fromJar(argFile));
+			} else if (!argFile.isDirectory()) {
 				botConfigs.add(new BotFileConfig(argFile));
 			} else {
 				addFromDirectory(argFile, botConfigs);
@@ -149,19 +494,37 @@ public class RubyBots {
 		return botConfigs;
 	}
 
-	private static void addFromDirectory(File argFile, List<BotConfig> botConfigs) {
+	private static void addFromDirectory(File argFile, List<BotConfig> botConfigs) throws IOException {
 		File[] filesInDirectory = argFile.listFiles(new FileFilter() {
 
 			@Override
 			public boolean accept(File pathname) {
-				return !pathname.isDirectory() && pathname.getName().endsWith(".rb");
+				return !pathname.isDirectory() && (isScript(pathname) || isJar(pathname));
 			}
 		});
 		for (File file : filesInDirectory) {
-			botConfigs.add(new BotFileConfig(file));
+			if (isJar(file)) {
+				botConfigs.addAll(BotJavaConfig.fromJar(file));
+			} else {
+				botConfigs.add(new BotFileConfig(file));
+			}
 		}
 	}
 
+	/**
+	 * Ruby bots and those of every language with a script engine on the
+	 * classpath.
+	 */
+	private static boolean isScript(File file) {
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		return dot > 0 && ScriptBotConfig.isScriptLanguage(name.substring(dot + 1).toLowerCase());
+	}
+
+	private static boolean isJar(File file) {
+		return file.isFile() && file.getName().endsWith(".jar");
+	}
+
 	private boolean init() {
 		if (initialized) {
 			return true;
@@ -170,6 +533,7 @@ public class RubyBots {
 			mEngine.prepareEngine();
 			mEngine.loadBotsFromClasspath(getConfigsOfType(botConfigs, BotClasspathConfig.class));
 			mEngine.loadBotsFromFiles(getConfigsOfType(botConfigs, BotFileConfig.class));
+			mEngine.loadBotsFromJava(getConfigsOfType(botConfigs, BotJavaConfig.class));
 		} catch (ScriptException | IllegalStateException e) {
 			LOGGER.log(Level.SEVERE, "RubyBots could not be initialized: " + e.getMessage());
 			return false;
@@ -0,0 +1,74 @@
+package de.crd.rubybots.battle;
+
+import de.crd.rubybots.battle.Action.ActionType;
+
+/**
+ * Describes what an applied action did to the battlefield. Events carry
+ * everything needed to replay them without evaluating the rules again.
+ */
+public class ActionEvent {
+
+	private final int round;
+	private final int botNumber;
+	private final ActionType actionType;
+	private final Outcome outcome;
+	private final int fromPosition;
+	private final int targetPosition;
+
+	/**
+	 * @param fromPosition
+	 *            where a moving bot came from, -1 for other actions
+	 * @param targetPosition
+	 *            where a moving bot went to or the position fired at or mined
+	 */
+	public ActionEvent(int round, int botNumber, ActionType actionType, Outcome outcome, int fromPosition,
+			int targetPosition) {
+		this.round = round;
+		this.botNumber = botNumber;
+		this.actionType = actionType;
+		this.outcome = outcome;
+		this.fromPosition = fromPosition;
+		this.targetPosition = targetPosition;
+	}
+
+	public int getRound() {
+		return round;
+	}
+
+	public int getBotNumber() {
+		return botNumber;
+	}
+
+	public ActionType getActionType() {
+		return actionType;
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	public int getFromPosition() {
+		return fromPosition;
+	}
+
+	public int getTargetPosition() {
+		return targetPosition;
+	}
+
+	@Override
+	public String toString() {
+		return "ActionEvent [round=" + round + ", botNumber=" + botNumber + ", actionType=" + actionType
+				+ ", outcome=" + outcome + ", fromPosition=" + fromPosition + ", targetPosition=" + targetPosition
+				+ "]";
+	}
+
+	public enum Outcome {
+		/** the bot had already been destroyed, the action was not counted */
+		SKIPPED,
+		MOVED, BLOCKED, STEPPED_ON_MINE,
+		MINE_SET, MINE_REJECTED,
+		MISSED, HIT_NOTHING, DESTROYED_MINE, DESTROYED_BOT, SUICIDE,
+		/** the bot queued too many actions, the type is the first one rejected */
+		DISQUALIFIED;
+	}
+}
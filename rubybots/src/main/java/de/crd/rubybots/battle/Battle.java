@@ -2,34 +2,60 @@ package de.crd.rubybots.battle;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-
-import javax.script.ScriptException;
 
 import de.crd.rubybots.bots.BotConfig;
 import de.crd.rubybots.config.Constants;
+import de.crd.rubybots.engine.BotCallResult;
 import de.crd.rubybots.engine.Engine;
+import de.crd.rubybots.engine.EngineConfig.ActionLimitPolicy;
+import de.crd.rubybots.logging.BattleTrace;
+import de.crd.rubybots.logging.EventLog;
 
 public class Battle {
 	private static final Logger LOGGER = Logger.getLogger(Battle.class.getSimpleName());
-	private static final long TIME_BETWEEN_ROUNDS = 1000L;
+	private static final EventLog LOG = EventLog.getLog(Battle.class);
+	private static final RoundPacing DEFAULT_PACING = RoundPacing.fixedRate(Constants.TIME_BETWEEN_ROUNDS);
 	private final List<Bot> bots;
 	private final Integer numberOfRounds;
 	private final UUID uuid = UUID.randomUUID();
+	private final BattleTrace trace = new BattleTrace("battle " + uuid);
 	private final long startTime = System.currentTimeMillis();
 	private final Battlefield battlefield;
+	private final RoundPacing roundPacing;
+	private final BotTimings botTimings;
+	private final long seed;
+	private final SplittableRandom mergeRandom;
+	private final SplittableRandom turnSeeds;
+	private BattleRecorder recorder;
 
 	public Battle(Integer numberOfRounds, List<BotConfig> botConfigs) {
+		this(numberOfRounds, botConfigs, DEFAULT_PACING);
+	}
+
+	public Battle(Integer numberOfRounds, List<BotConfig> botConfigs, RoundPacing roundPacing) {
+		this(numberOfRounds, botConfigs, roundPacing, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * All randomness of the battle, including Ruby's rand, is derived from
+	 * the seed. Battles with the same seed and deterministic bots play out the
+	 * same way.
+	 */
+	public Battle(Integer numberOfRounds, List<BotConfig> botConfigs, RoundPacing roundPacing, long seed) {
 		this.numberOfRounds = numberOfRounds;
+		this.roundPacing = roundPacing;
 		this.bots = getBots(botConfigs);
-		this.battlefield = new Battlefield(this);
+		this.botTimings = new BotTimings(bots.size());
+		this.seed = seed;
+		SplittableRandom random = new SplittableRandom(seed);
+		this.battlefield = new Battlefield(this, random.split());
+		this.mergeRandom = random.split();
+		this.turnSeeds = random.split();
 	}
 
 	private List<Bot> getBots(List<BotConfig> botConfigs) {
@@ -44,6 +70,38 @@ public class Battle {
 		this(null, botConfigs);
 	}
 
+	/**
+	 * Records every action of the battle. Has to be set before the battle is
+	 * executed, the recorder is not closed by the battle.
+	 */
+	public void setRecorder(BattleRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Logs the events of this battle at INFO, so they show up without
+	 * changing the log configuration. Can be switched at any time, also while
+	 * the battle is running.
+	 */
+	public void setTrace(boolean enabled) {
+		trace.setEnabled(enabled);
+	}
+
+	public boolean isTrace() {
+		return trace.isEnabled();
+	}
+
+	/**
+	 * NON-API
+	 */
+	public BattleTrace getTrace() {
+		return trace;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
 	public long getStartTime() {
 		return startTime;
 	}
@@ -56,20 +114,28 @@ public class Battle {
 	 * NON-API
 	 */
 	public void execute(Engine engine) {
-		LOGGER.log(Level.FINE, "Begin of battle " + uuid);
-		if (numberOfRounds != null) {
-			executeRoundBasedBattle(engine);
-		} else {
-			executeLastManStanding(engine);
+		LOG.log(trace, () -> "Begin of battle " + uuid + " with seed " + seed);
+		if (recorder != null) {
+			recorder.start(this, battlefield);
+		}
+		try {
+			if (numberOfRounds != null) {
+				executeRoundBasedBattle(engine);
+			} else {
+				executeLastManStanding(engine);
+			}
+		} finally {
+			engine.unpinScripts(bots);
 		}
 		Bot winner = battlefield.getWinner();
-		LOGGER.log(Level.FINE, "End of battle " + uuid + ". Winner is: " + ((winner != null) ? winner : "nobody"));
+		LOG.log(trace, () -> "End of battle " + uuid + ". Winner is: " + ((winner != null) ? winner : "nobody"));
 	}
 
 	private void executeLastManStanding(Engine engine) {
 		while (!battlefield.isOwned()) {
+			long roundStart = System.nanoTime();
 			callAllBots(battlefield.nextRound(), engine);
-			sleepBetweenRounds();
+			sleepBetweenRounds(roundStart);
 		}
 	}
 
@@ -80,80 +146,172 @@ public class Battle {
 	private void executeRoundBasedBattle(Engine engine) {
 		do {
 			if (battlefield.isOwned()) {
-				LOGGER.log(Level.FINE,
-						"Battle has already been won. Not executing round " + (battlefield.getCurrentRound() + 1));
+				if (LOG.isEnabled(trace)) {
+					LOG.log(trace, "Battle has already been won. Not executing round " + (battlefield.getCurrentRound() + 1));
+				}
 				break;
 			}
+			long roundStart = System.nanoTime();
 			battlefield.nextRound();
 			callAllBots(battlefield.getCurrentRound(), engine);
-			sleepBetweenRounds();
+			sleepBetweenRounds(roundStart);
 		} while (battlefield.getCurrentRound() < this.numberOfRounds);
 	}
 
-	private void sleepBetweenRounds() {
+	private void sleepBetweenRounds(long roundStart) {
 		try {
-			Thread.sleep(TIME_BETWEEN_ROUNDS);
+			roundPacing.afterRound(roundStart);
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 		}
 	}
 
 	private void callAllBots(int round, Engine engine) {
-		LOGGER.log(Level.FINE, "--------------------------------------\nCalling all bots for round " + round);
-		List<MoveResult> moveResults = new ArrayList<>();
+		if (LOG.isEnabled(trace)) {
+			LOG.log(trace, "--------------------------------------\nCalling all bots for round " + round);
+		}
+		List<Context> contexts = new ArrayList<>();
+		ActionLimitPolicy actionLimitPolicy = engine.getEngineConfig().getActionLimitPolicy();
 		for (int currentBot = 0; currentBot < getNumberOfBots(); currentBot++) {
 			if (!battlefield.isBotAlive(currentBot)) {
-				LOGGER.log(Level.FINE, "Skipping bot " + currentBot + " since it has already been destroyed.");
+				if (LOG.isEnabled(trace)) {
+					LOG.log(trace, "Skipping bot " + currentBot + " since it has already been destroyed.");
+				}
 				continue;
 			}
-			Context context = new Context(this, currentBot, round, battlefield.toView(currentBot), getNumberOfBots());
-			try {
-				engine.callBot(context);// this changes the battlefieldView
-			} catch (ScriptException e) {
-				LOGGER.log(Level.FINE, e.getMessage());
-				LOGGER.log(Level.SEVERE, "Script of bot " + currentBot + " contained script error. Skipping bot.");
+			// drawn in bot order, so parallel lanes don't change the seeds
+			contexts.add(new Context(this, currentBot, round, battlefield.toView(currentBot, actionLimitPolicy),
+					getNumberOfBots(),
+					turnSeeds.nextLong()));
+		}
+		List<MoveResult> moveResults = new ArrayList<>();
+		List<MoveResult> disqualified = new ArrayList<>();
+		// this changes the battlefieldViews
+		for (BotCallResult botCallResult : engine.callBots(contexts)) {
+			Context context = botCallResult.getContext();
+			botTimings.record(context.getBotNumber(), botCallResult.getWallNanos(), botCallResult.getCpuNanos(),
+					botCallResult.isTimedOut());
+			if (botCallResult.isTimedOut()) {
+				LOGGER.log(Level.SEVERE,
+						"Bot " + context.getBotNumber() + " exceeded its time budget. Turn forfeited.");
 				continue;
 			}
 			MoveResult result = Battlefield.extractMoveResult(context.getBattlefield());
+			if (result.getRejectedActions() > 0) {
+				countRejectedActions(result, engine);
+				if (actionLimitPolicy == ActionLimitPolicy.DISQUALIFY) {
+					disqualified.add(result);
+					continue;
+				}
+			}
+			if (!botCallResult.isSuccessful()) {
+				if (LOG.isEnabled(trace)) {
+					LOG.log(trace, botCallResult.getError().getMessage());
+				}
+				LOGGER.log(Level.SEVERE,
+						"Script of bot " + context.getBotNumber() + " contained script error. Skipping bot.");
+				continue;
+			}
 			moveResults.add(result);
-			LOGGER.log(Level.FINE, "Obtained move result: " + result);
+			if (LOG.isEnabled(trace)) {
+				LOG.log(trace, "Obtained move result: " + result);
+			}
+		}
+		applyMoveResults(moveResults, disqualified, engine);
+		if (recorder != null) {
+			recorder.endRound(battlefield);
+		}
+		engine.getMetrics().recordRound();
+		if (LOG.isEnabled(trace)) {
+			LOG.log(trace, "--------------------------------------\nEnd of round " + round);
 		}
-		applyMoveResults(moveResults, engine);
-		LOGGER.log(Level.FINE, "--------------------------------------\nEnd of round " + round);
 	}
 
-	private void applyMoveResults(List<MoveResult> moveResults, Engine engine) {
-		List<Action> mergedActions = getMergedActionsStableShuffled(moveResults);
-		Map<Integer, Integer> actionsPerBot = new HashMap<>();
-		for (Action action : mergedActions) {
-			Integer actionsOfThisBot = actionsPerBot.get(action.getBotNumber());
-			if (actionsOfThisBot == null) {
-				actionsOfThisBot = 0;
-			}
-			if (actionsOfThisBot >= Constants.MAX_ACTIONS_PER_BOT) {
-				LOGGER.log(Level.FINE, "Skipping illegal action of bot " + action.getBotNumber());
-				continue;
+	private void countRejectedActions(MoveResult result, Engine engine) {
+		battlefield.addRejectedActions(result.getBotNumber(), result.getRejectedActions());
+		engine.getMetrics().recordRejectedActions(result.getRejectedActions());
+		if (LOG.isEnabled(trace)) {
+			LOG.log(trace, "Bot " + result.getBotNumber() + " queued " + result.getRejectedActions()
+					+ " actions over the limit.");
+		}
+	}
+
+	/**
+	 * Disqualifications take effect before any action of the round. The
+	 * journal and the stats of every step are only built if anyone listens,
+	 * headless battles just record and count the events.
+	 */
+	private void applyMoveResults(List<MoveResult> moveResults, List<MoveResult> disqualified, Engine engine) {
+		int[] order = mergeStableShuffled(moveResults, mergeRandom);
+		RoundJournal journal = null;
+		BotTimings roundTimings = null;
+		if (engine.getBattleStatsPublisher().hasSubscribers()) {
+			journal = new RoundJournal(battlefield, disqualified.size() + order.length);
+			roundTimings = botTimings.copy();
+		}
+		for (MoveResult result : disqualified) {
+			publish(battlefield.disqualify(result.getBotNumber(), result.getFirstRejectedActionType()), journal,
+					roundTimings, engine);
+		}
+		ActionEvent[] events = new ActionEvent[order.length];
+		int numberOfEvents = battlefield.applyActions(moveResults, order, events);
+		// the journal holds the whole round, so the stats of every step can
+		// still be published in order
+		for (int i = 0; i < numberOfEvents; i++) {
+			publish(events[i], journal, roundTimings, engine);
+		}
+	}
+
+	/**
+	 * @param journal
+	 *            null if nobody listens to the stats
+	 */
+	private void publish(ActionEvent event, RoundJournal journal, BotTimings roundTimings, Engine engine) {
+		if (recorder != null) {
+			recorder.record(event);
+		}
+		engine.getMetrics().recordAction(event);
+		if (journal != null) {
+			int numberOfEvents = journal.append(event);
+			engine.getBattleStatsPublisher()
+					.publish(new BattleStats(startTime, getNumberOfBots(), journal, numberOfEvents, roundTimings));
+		}
+	}
+
+	/**
+	 * Interleaves the actions of all bots randomly while the actions of each
+	 * bot keep their order.
+	 * 
+	 * @return for every action the index of its move result, the n-th
+	 *         occurrence of an index stands for the n-th action of that result
+	 */
+	static int[] mergeStableShuffled(List<MoveResult> moveResults, SplittableRandom random) {
+		int numberOfActions = 0;
+		// results with actions left, in their original order
+		int[] pending = new int[moveResults.size()];
+		int[] actionsLeft = new int[moveResults.size()];
+		int numberPending = 0;
+		for (int i = 0; i < moveResults.size(); i++) {
+			actionsLeft[i] = moveResults.get(i).getNumberOfActions();
+			numberOfActions += actionsLeft[i];
+			if (actionsLeft[i] > 0) {
+				pending[numberPending++] = i;
 			}
-			actionsPerBot.put(action.getBotNumber(), ++actionsOfThisBot);
-			battlefield.applyAction(action);
-			engine.getBattleStatsUpdateQueue().offer(battlefield.getBattleStats());
-		}
-	}
-
-	static List<Action> getMergedActionsStableShuffled(List<MoveResult> moveResults) {
-		Random random = new Random();
-		List<Action> mergedActions = new ArrayList<>();
-		List<List<Action>> actionSets = moveResults.stream().map(result -> result.getActions())
-				.filter(list -> list != null && !list.isEmpty()).collect(Collectors.toList());
-		while (!actionSets.isEmpty()) {
-			int takeFrom = random.nextInt(actionSets.size());
-			mergedActions.add(actionSets.get(takeFrom).get(0));
-			actionSets.get(takeFrom).remove(0);
-			if (actionSets.get(takeFrom).isEmpty()) {
-				actionSets.remove(takeFrom);
+		}
+		int[] order = new int[numberOfActions];
+		for (int i = 0; i < numberOfActions; i++) {
+			int takeFrom = random.nextInt(numberPending);
+			int result = pending[takeFrom];
+			order[i] = result;
+			if (--actionsLeft[result] == 0) {
+				System.arraycopy(pending, takeFrom + 1, pending, takeFrom, --numberPending - takeFrom);
 			}
 		}
-		return mergedActions;
+		return order;
+	}
+
+	public BotTimings getBotTimings() {
+		return botTimings.copy();
 	}
 
 	public List<Bot> getBots() {
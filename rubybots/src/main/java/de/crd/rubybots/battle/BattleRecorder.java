@@ -0,0 +1,199 @@
+package de.crd.rubybots.battle;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import de.crd.rubybots.battle.Action.ActionType;
+
+/**
+ * Streams every applied action of a battle into a compact binary file. The
+ * file is written through a memory mapping that grows in chunks. Every few
+ * rounds the whole battlefield is written as a keyframe, so
+ * {@link BattleRecording} can restore any round without replaying the battle
+ * from the start.
+ * <p>
+ * Format, all numbers are unsigned varints unless noted:
+ * <ul>
+ * <li>header: magic (4 bytes), length of the recording (8 bytes, 0 until it
+ * is closed), version, seed (zigzag), keyframe interval, field size, number
+ * of bots, bot names (length and UTF-8 bytes)</li>
+ * <li>EVENT: bot number, action type &lt;&lt; 4 | outcome (1 byte), from
+ * position + 1, target position + 1</li>
+ * <li>END_OF_ROUND: round</li>
+ * <li>KEYFRAME: length, round, the cells of the field (zigzag), the history
+ * of every bot by action type</li>
+ * </ul>
+ * Every record starts with its type (1 byte). The first keyframe holds the
+ * starting positions (round 0). The file is not cut to the recorded length,
+ * since a mapped file cannot be truncated on every platform, the rest of the
+ * last chunk is zeros.
+ */
+public class BattleRecorder implements Closeable {
+
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+	static final int MAGIC = 0x52424231; // RBB1
+	static final int VERSION = 2;
+	static final int LENGTH_OFFSET = 4;
+	static final byte EVENT = 1;
+	static final byte END_OF_ROUND = 2;
+	static final byte KEYFRAME = 3;
+	private static final int CHUNK_SIZE = 1 << 20;
+	// longest varint plus record type
+	private static final int MAX_FIELD_SIZE = 11;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int keyframeInterval;
+	private MappedByteBuffer buffer;
+	private long bufferStart;
+	private byte[] keyframe = new byte[0];
+
+	/**
+	 * @param keyframeInterval
+	 *            number of rounds between two keyframes
+	 */
+	public BattleRecorder(File recording, int keyframeInterval) throws IOException {
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("Keyframe interval must be at least 1.");
+		}
+		this.keyframeInterval = keyframeInterval;
+		this.file = new RandomAccessFile(recording, "rw");
+		this.file.setLength(0L);
+		this.channel = file.getChannel();
+		this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, CHUNK_SIZE);
+	}
+
+	void start(Battle battle, Battlefield battlefield) {
+		buffer.putInt(MAGIC);
+		buffer.putLong(0L);
+		writeVarint(VERSION);
+		writeVarlong((battle.getSeed() << 1) ^ (battle.getSeed() >> 63));
+		writeVarint(keyframeInterval);
+		writeVarint(battlefield.getFieldSize());
+		writeVarint(battle.getNumberOfBots());
+		for (Bot bot : battle.getBots()) {
+			byte[] name = bot.getBotConfig().getName().getBytes(StandardCharsets.UTF_8);
+			writeVarint(name.length);
+			writeBytes(name, name.length);
+		}
+		writeKeyframe(battlefield);
+	}
+
+	void record(ActionEvent event) {
+		ensureCapacity(4 * MAX_FIELD_SIZE);
+		buffer.put(EVENT);
+		writeVarint(event.getBotNumber());
+		buffer.put((byte) (event.getActionType().ordinal() << 4 | event.getOutcome().ordinal()));
+		writeVarint(event.getFromPosition() + 1);
+		writeVarint(event.getTargetPosition() + 1);
+	}
+
+	void endRound(Battlefield battlefield) {
+		ensureCapacity(MAX_FIELD_SIZE);
+		buffer.put(END_OF_ROUND);
+		writeVarint(battlefield.getCurrentRound());
+		if (battlefield.getCurrentRound() % keyframeInterval == 0) {
+			writeKeyframe(battlefield);
+		}
+	}
+
+	/**
+	 * Keyframes are prefixed with their length so readers can skip them, so
+	 * they are encoded into a scratch array first.
+	 */
+	private void writeKeyframe(Battlefield battlefield) {
+		int maxLength = (battlefield.getFieldSize() + 1
+				+ battlefield.getParentBattle().getNumberOfBots() * ActionType.values().length) * 5;
+		if (keyframe.length < maxLength) {
+			keyframe = new byte[maxLength];
+		}
+		int length = putVarint(keyframe, 0, battlefield.getCurrentRound());
+		for (int position = 0; position < battlefield.getFieldSize(); position++) {
+			int cell = battlefield.getCell(position);
+			length = putVarint(keyframe, length, (cell << 1) ^ (cell >> 31));
+		}
+		for (int bot = 0; bot < battlefield.getParentBattle().getNumberOfBots(); bot++) {
+			for (ActionType actionType : ActionType.values()) {
+				length = putVarint(keyframe, length, battlefield.getHistoryCount(bot, actionType));
+			}
+		}
+		ensureCapacity(MAX_FIELD_SIZE);
+		buffer.put(KEYFRAME);
+		writeVarint(length);
+		writeBytes(keyframe, length);
+	}
+
+	private void writeBytes(byte[] bytes, int length) {
+		int written = 0;
+		while (written < length) {
+			ensureCapacity(1);
+			int chunk = Math.min(length - written, buffer.remaining());
+			buffer.put(bytes, written, chunk);
+			written += chunk;
+		}
+	}
+
+	private void writeVarint(int value) {
+		ensureCapacity(MAX_FIELD_SIZE);
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private void writeVarlong(long value) {
+		ensureCapacity(MAX_FIELD_SIZE);
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private static int putVarint(byte[] bytes, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[offset++] = (byte) value;
+		return offset;
+	}
+
+	/**
+	 * Maps the next chunk of the file if the current one is almost full.
+	 */
+	private void ensureCapacity(int bytes) {
+		if (buffer.remaining() >= bytes) {
+			return;
+		}
+		bufferStart += buffer.position();
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, bufferStart, CHUNK_SIZE);
+		} catch (IOException e) {
+			throw new IllegalStateException("Recording could not be extended.", e);
+		}
+	}
+
+	/**
+	 * Writes the length of what has actually been written into the header.
+	 */
+	@Override
+	public void close() throws IOException {
+		long length = bufferStart + buffer.position();
+		if (bufferStart == 0L) {
+			buffer.putLong(LENGTH_OFFSET, length);
+		} else {
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, LENGTH_OFFSET, Long.BYTES);
+			header.putLong(0, length);
+			header.force();
+		}
+		buffer.force();
+		buffer = null;
+		file.close();
+	}
+}
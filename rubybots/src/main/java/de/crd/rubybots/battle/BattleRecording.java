@@ -0,0 +1,259 @@
+package de.crd.rubybots.battle;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.battle.ActionEvent.Outcome;
+import de.crd.rubybots.bots.BotConfig;
+
+/**
+ * Reads a file written by {@link BattleRecorder}. Any round can be restored
+ * from the nearest keyframe before it, without executing a single bot.
+ */
+public class BattleRecording implements Closeable {
+
+	private static final ActionType[] ACTION_TYPES = ActionType.values();
+	private static final Outcome[] OUTCOMES = Outcome.values();
+	private final RandomAccessFile file;
+	private final MappedByteBuffer buffer;
+	private final long seed;
+	private final int keyframeInterval;
+	private final int fieldSize;
+	private final Battle battle;
+	// offset of the first record of every round, by round
+	private int[] roundOffsets = new int[64];
+	// offset of every keyframe, by round divided by the interval
+	private int[] keyframeOffsets = new int[64];
+	private int numberOfRounds;
+
+	public BattleRecording(File recording) throws IOException {
+		this.file = new RandomAccessFile(recording, "r");
+		if (file.length() > Integer.MAX_VALUE) {
+			file.close();
+			throw new IOException("Recordings larger than 2 GB are not supported.");
+		}
+		this.buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0L, file.length());
+		if (buffer.getInt() != BattleRecorder.MAGIC) {
+			file.close();
+			throw new IOException("Not a battle recording: " + recording);
+		}
+		long length = buffer.getLong();
+		if (readVarint() != BattleRecorder.VERSION || length > buffer.capacity()) {
+			file.close();
+			throw new IOException("Not a battle recording: " + recording);
+		}
+		if (length > 0L) {
+			// the rest of the last chunk
+			buffer.limit((int) length);
+		}
+		long zigzagSeed = readVarlong();
+		this.seed = (zigzagSeed >>> 1) ^ -(zigzagSeed & 1);
+		this.keyframeInterval = readVarint();
+		this.fieldSize = readVarint();
+		List<BotConfig> botConfigs = new ArrayList<>();
+		int numberOfBots = readVarint();
+		for (int i = 0; i < numberOfBots; i++) {
+			byte[] name = new byte[readVarint()];
+			buffer.get(name);
+			botConfigs.add(new RecordedBotConfig(new String(name, StandardCharsets.UTF_8)));
+		}
+		this.battle = new Battle(null, botConfigs, RoundPacing.headless(), seed);
+		index();
+	}
+
+	/**
+	 * Finds the rounds and keyframes in a single pass.
+	 */
+	private void index() {
+		while (buffer.hasRemaining()) {
+			int offset = buffer.position();
+			byte type = buffer.get();
+			switch (type) {
+			case 0:
+				// the unused rest of a recording that has not been closed
+				return;
+			case BattleRecorder.EVENT:
+				readVarint();
+				buffer.get();
+				readVarint();
+				readVarint();
+				break;
+			case BattleRecorder.END_OF_ROUND:
+				numberOfRounds = readVarint();
+				roundOffsets = put(roundOffsets, numberOfRounds + 1, buffer.position());
+				break;
+			case BattleRecorder.KEYFRAME:
+				int length = readVarint();
+				int keyframeStart = buffer.position();
+				int round = readVarint();
+				keyframeOffsets = put(keyframeOffsets, round / keyframeInterval, offset);
+				// the next round starts after the keyframe
+				roundOffsets = put(roundOffsets, round + 1, keyframeStart + length);
+				buffer.position(keyframeStart + length);
+				break;
+			default:
+				throw new IllegalStateException("Recording is corrupt at offset " + offset + ".");
+			}
+		}
+	}
+
+	private static int[] put(int[] array, int index, int value) {
+		if (index >= array.length) {
+			array = Arrays.copyOf(array, Math.max(index + 1, array.length * 2));
+		}
+		array[index] = value;
+		return array;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getNumberOfRounds() {
+		return numberOfRounds;
+	}
+
+	/**
+	 * Names and numbers of the recorded bots. The battle itself has never been
+	 * executed.
+	 */
+	public Battle getBattle() {
+		return battle;
+	}
+
+	/**
+	 * @return the state at the end of the given round, round 0 is the start
+	 *         of the battle
+	 */
+	public synchronized Battlefield getBattlefield(int round) {
+		checkRound(round);
+		int keyframeRound = round / keyframeInterval * keyframeInterval;
+		Battlefield battlefield = readKeyframe(keyframeOffsets[round / keyframeInterval]);
+		for (int r = keyframeRound + 1; r <= round; r++) {
+			buffer.position(roundOffsets[r]);
+			ActionEvent event;
+			while ((event = readEvent(r)) != null) {
+				battlefield.replay(event);
+			}
+		}
+		// rounds in which nobody acted leave no events
+		while (battlefield.getCurrentRound() < round) {
+			battlefield.nextRound();
+		}
+		return battlefield;
+	}
+
+	/**
+	 * The actions of one round in the order they were applied.
+	 */
+	public synchronized List<ActionEvent> getEvents(int round) {
+		checkRound(round);
+		if (round == 0) {
+			return Collections.emptyList();
+		}
+		List<ActionEvent> events = new ArrayList<>();
+		buffer.position(roundOffsets[round]);
+		ActionEvent event;
+		while ((event = readEvent(round)) != null) {
+			events.add(event);
+		}
+		return events;
+	}
+
+	public BattleStats getBattleStats(int round) {
+		return new BattleStats(0L, battle.getNumberOfBots(), getBattlefield(round));
+	}
+
+	private void checkRound(int round) {
+		if (round < 0 || round > numberOfRounds) {
+			throw new IllegalArgumentException("Round " + round + " has not been recorded.");
+		}
+	}
+
+	/**
+	 * @return null at the end of the round
+	 */
+	private ActionEvent readEvent(int round) {
+		if (buffer.get() != BattleRecorder.EVENT) {
+			return null;
+		}
+		int botNumber = readVarint();
+		int typeAndOutcome = buffer.get();
+		int fromPosition = readVarint() - 1;
+		int targetPosition = readVarint() - 1;
+		return new ActionEvent(round, botNumber, ACTION_TYPES[typeAndOutcome >> 4], OUTCOMES[typeAndOutcome & 0xF],
+				fromPosition, targetPosition);
+	}
+
+	private Battlefield readKeyframe(int offset) {
+		buffer.position(offset + 1);
+		readVarint(); // length
+		int round = readVarint();
+		int[] field = new int[fieldSize];
+		for (int position = 0; position < fieldSize; position++) {
+			int zigzag = readVarint();
+			field[position] = (zigzag >>> 1) ^ -(zigzag & 1);
+		}
+		int[] history = new int[battle.getNumberOfBots() * ACTION_TYPES.length];
+		for (int i = 0; i < history.length; i++) {
+			history[i] = readVarint();
+		}
+		return new Battlefield(battle, round, field, history);
+	}
+
+	private int readVarint() {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	private long readVarlong() {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	private static class RecordedBotConfig implements BotConfig {
+
+		private final String name;
+
+		RecordedBotConfig(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String toString() {
+			return "RecordedBotConfig [name=" + name + "]";
+		}
+	}
+}
@@ -9,22 +9,40 @@ import de.crd.rubybots.battle.Action.ActionType;
 public class BattleStats {
 
 	private final long timestamp;
-	private final Battlefield battleField;
-	private final Bot winner;
-	private final int rounds;
 	private final int numberOfBots;
+	private final RoundJournal journal;
+	private final int numberOfEvents;
+	private final BotTimings botTimings;
+	private Battlefield battleField;
 
 	public BattleStats(long battleStart, int numberOfBots, Battlefield battleField) {
+		this(battleStart, numberOfBots, battleField, new BotTimings(numberOfBots));
+	}
+
+	public BattleStats(long battleStart, int numberOfBots, Battlefield battleField, BotTimings botTimings) {
 		this.numberOfBots = numberOfBots;
 		this.battleField = battleField;
-		this.rounds = battleField.getCurrentRound();
-		this.winner = battleField.getWinner();
+		this.botTimings = botTimings;
+		this.journal = null;
+		this.numberOfEvents = 0;
+		this.timestamp = System.currentTimeMillis() - battleStart;
+	}
+
+	/**
+	 * Cheap to create: the battlefield is only rebuilt from the journal when it
+	 * is asked for.
+	 */
+	BattleStats(long battleStart, int numberOfBots, RoundJournal journal, int numberOfEvents, BotTimings botTimings) {
+		this.numberOfBots = numberOfBots;
+		this.botTimings = botTimings;
+		this.journal = journal;
+		this.numberOfEvents = numberOfEvents;
 		this.timestamp = System.currentTimeMillis() - battleStart;
 	}
 
 	@Override
 	public String toString() {
-		return "BattleStats [timestamp=" + timestamp + ", battleField=" + battleField + "]";
+		return "BattleStats [timestamp=" + timestamp + ", battleField=" + getBattlefield() + "]";
 	}
 
 	@Override
@@ -50,19 +68,23 @@ public class BattleStats {
 	}
 
 	public Bot getWinner() {
-		return winner;
+		return getBattlefield().getWinner();
 	}
 
 	public int getRounds() {
-		return rounds;
+		return getBattlefield().getCurrentRound();
 	}
 
-	public Battlefield getBattlefield() {
+	public synchronized Battlefield getBattlefield() {
+		if (battleField == null) {
+			battleField = journal.reconstruct(numberOfEvents);
+		}
 		return battleField;
 	}
 
 	public static BattleStats calculateStats(long startTime, int numberOfBots, Battlefield battlefield) {
-		return new BattleStats(startTime, numberOfBots, new Battlefield(battlefield));
+		return new BattleStats(startTime, numberOfBots, new Battlefield(battlefield),
+				battlefield.getParentBattle().getBotTimings());
 	}
 
 	public Map<ActionType, Integer> getSummedUpHistory() {
@@ -70,7 +92,7 @@ public class BattleStats {
 		for (ActionType actionType : ActionType.values()) {
 			result.put(actionType, 0);
 		}
-		for (Entry<Integer, Map<ActionType, Integer>> allHistory : battleField.getHistory().entrySet()) {
+		for (Entry<Integer, Map<ActionType, Integer>> allHistory : getHistory().entrySet()) {
 			for (Entry<ActionType, Integer> singleBotHistoryEntry : allHistory.getValue().entrySet()) {
 				result.put(singleBotHistoryEntry.getKey(),
 						result.get(singleBotHistoryEntry.getKey()) + singleBotHistoryEntry.getValue());
@@ -79,8 +101,26 @@ public class BattleStats {
 		return result;
 	}
 
+	/**
+	 * Actions every bot queued over the limit, by bot number.
+	 */
+	public Map<Integer, Integer> getRejectedActions() {
+		Map<Integer, Integer> rejectedActions = new HashMap<>();
+		for (int i = 0; i < numberOfBots; i++) {
+			rejectedActions.put(i, getBattlefield().getRejectedActions(i));
+		}
+		return rejectedActions;
+	}
+
 	public Map<Integer, Map<ActionType, Integer>> getHistory() {
-		return battleField.getHistory();
+		return getBattlefield().getHistory();
+	}
+
+	/**
+	 * Timings as of the start of the round these stats belong to.
+	 */
+	public BotTimings getBotTimings() {
+		return botTimings;
 	}
 
 	public long getTimestamp() {
@@ -108,6 +148,9 @@ public class BattleStats {
 		sb.append("Winner: ");
 		sb.append(getWinner() != null ? "Bot " + getWinner().getBotNumber() + " (" + getWinnerName() + ")" : "Nobody");
 		sb.append(lineSeparator);
+		sb.append("Seed: ");
+		sb.append(getBattlefield().getParentBattle().getSeed());
+		sb.append(lineSeparator);
 		sb.append("Rounds: ");
 		sb.append(getRounds());
 		sb.append(lineSeparator);
@@ -117,6 +160,12 @@ public class BattleStats {
 		sb.append("Summed up history: ");
 		sb.append(getSummedUpHistory());
 		sb.append(lineSeparator);
+		sb.append("Rejected actions: ");
+		sb.append(getRejectedActions());
+		sb.append(lineSeparator);
+		sb.append("Bot timings: ");
+		sb.append(getBotTimings());
+		sb.append(lineSeparator);
 		sb.append("Final Battlefield: ");
 		sb.append(getBattlefield());
 		sb.append(lineSeparator);
@@ -129,6 +178,6 @@ public class BattleStats {
 		if (winner == null) {
 			return "N/A";
 		}
-		return battleField.getParentBattle().getBots().get(winner.getBotNumber()).getBotConfig().getName();
+		return getBattlefield().getParentBattle().getBots().get(winner.getBotNumber()).getBotConfig().getName();
 	}
 }
@@ -1,48 +1,109 @@
 package de.crd.rubybots.battle;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Random;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
 
 import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.battle.ActionEvent.Outcome;
 import de.crd.rubybots.config.Constants;
+import de.crd.rubybots.engine.EngineConfig.ActionLimitPolicy;
+import de.crd.rubybots.logging.BattleTrace;
+import de.crd.rubybots.logging.EventLog;
 
 public class Battlefield {
 
-	private static final Logger LOGGER = Logger.getLogger(Battlefield.class.getSimpleName());
+	private static final EventLog LOG = EventLog.getLog(Battlefield.class);
+	// cell encoding: bots are stored as botNumber + 1
+	static final int EMPTY = 0;
+	static final int MINE = -1;
+	static final int NO_POSITION = -1;
 	private final Battle parentBattle;
+	private final BattleTrace trace;
 	private int currentRound;
-	private final Map<Integer, BattlefieldEntity> field;
-	private final Map<Integer, Map<ActionType, Integer>> history = new HashMap<>();
+	private final int[] field;
+	// cells a bot can move to, that is empty or mined ones
+	private final BitSet withoutBot;
+	private final int[] positionOfBot;
+	private int menStanding;
+	// equals the winner's number as soon as only one bot is left
+	private long sumOfBotsStanding;
+	private static final ActionType[] ACTION_TYPES = ActionType.values();
+	// actions per bot and type, at botNumber * ACTION_TYPES.length + ordinal
+	private final int[] history;
+	// actions per bot that were queued over the limit
+	private final int[] rejectedActions;
 	private final int fieldSize;
+	// read-only copy of the field shared by all views until the next change
+	private int[] snapshot;
+	// reused in every round, created with the first view
+	private MoveResult[] moveResults;
 
 	public Battlefield(Battle parentBattle) {
-		this.field = new HashMap<>();
+		this(parentBattle, new SplittableRandom());
+	}
+
+	/**
+	 * The random generator decides the initial positions.
+	 */
+	Battlefield(Battle parentBattle, SplittableRandom random) {
 		this.parentBattle = parentBattle;
+		this.trace = parentBattle.getTrace();
 		this.fieldSize = getFieldSize(parentBattle.getNumberOfBots());
-		initField(parentBattle.getNumberOfBots());
-		this.initHistory(parentBattle.getNumberOfBots());
+		this.field = new int[fieldSize];
+		this.withoutBot = new BitSet(fieldSize);
+		withoutBot.set(0, fieldSize);
+		this.positionOfBot = new int[parentBattle.getNumberOfBots()];
+		initField(parentBattle.getNumberOfBots(), random);
+		this.history = new int[parentBattle.getNumberOfBots() * ACTION_TYPES.length];
+		this.rejectedActions = new int[parentBattle.getNumberOfBots()];
 	}
 
 	public Battlefield(Battlefield toCopy) {
 		this.parentBattle = toCopy.parentBattle;
+		this.trace = toCopy.trace;
 		this.currentRound = toCopy.currentRound;
-		this.field = new HashMap<>(toCopy.field);
-		for (Entry<Integer, Map<ActionType, Integer>> entry : toCopy.history.entrySet()) {
-			this.history.put(entry.getKey(), new HashMap<>(entry.getValue()));
-		}
+		this.field = toCopy.field.clone();
+		this.withoutBot = (BitSet) toCopy.withoutBot.clone();
+		this.positionOfBot = toCopy.positionOfBot.clone();
+		this.menStanding = toCopy.menStanding;
+		this.sumOfBotsStanding = toCopy.sumOfBotsStanding;
+		this.history = toCopy.history.clone();
+		this.rejectedActions = toCopy.rejectedActions.clone();
 		this.fieldSize = toCopy.fieldSize;
 	}
 
-	private void initHistory(int numberOfBots) {
-		for (int i = 0; i < numberOfBots; i++) {
-			history.put(i, new HashMap<>());
+	/**
+	 * Restores a recorded state. Positions and survivors are derived from the
+	 * field. Rejected actions are not recorded.
+	 * 
+	 * @param history
+	 *            see {@link #getHistoryCount(int, ActionType)}
+	 */
+	Battlefield(Battle parentBattle, int currentRound, int[] field, int[] history) {
+		this.parentBattle = parentBattle;
+		this.trace = parentBattle.getTrace();
+		this.currentRound = currentRound;
+		this.fieldSize = field.length;
+		this.field = field;
+		this.withoutBot = new BitSet(fieldSize);
+		this.positionOfBot = new int[parentBattle.getNumberOfBots()];
+		Arrays.fill(positionOfBot, NO_POSITION);
+		for (int position = 0; position < fieldSize; position++) {
+			withoutBot.set(position, field[position] <= EMPTY);
+			if (field[position] > EMPTY) {
+				int botNumber = field[position] - 1;
+				positionOfBot[botNumber] = position;
+				menStanding++;
+				sumOfBotsStanding += botNumber;
+			}
 		}
+		this.history = history;
+		this.rejectedActions = new int[parentBattle.getNumberOfBots()];
 	}
 
 	private int getFieldSize(int numberOfBots) {
@@ -52,17 +113,19 @@ public class Battlefield {
 	/**
 	 * Sets initial positions for the bots.
 	 */
-	private void initField(final int numberOfBots) {
-		Random random = new Random();
+	private void initField(final int numberOfBots, SplittableRandom random) {
 		for (int i = 0; i < numberOfBots; i++) {
 			int position = random.nextInt(fieldSize);
-			while (field.get(position) != null) {
+			while (field[position] != EMPTY) {
 				position++;
 				if (position >= fieldSize) {
 					position = 0;
 				}
 			}
-			field.put(position, parentBattle.getBot(i));
+			setCell(position, i + 1);
+			positionOfBot[i] = position;
+			menStanding++;
+			sumOfBotsStanding += i;
 		}
 	}
 
@@ -74,112 +137,199 @@ public class Battlefield {
 		return ++currentRound;
 	}
 
+	/**
+	 * All views created between two actions share one snapshot of the field,
+	 * so a round costs a single copy no matter how many bots are standing.
+	 * Views of a bot in the same round queue into the same actions. Views of
+	 * earlier rounds ignore anything queued on them.
+	 */
 	public BattlefieldView toView(int botNumber) {
-		return new BattlefieldView(botNumber, fieldSize, field);
+		return toView(botNumber, ActionLimitPolicy.IGNORE);
+	}
+
+	public BattlefieldView toView(int botNumber, ActionLimitPolicy actionLimitPolicy) {
+		if (snapshot == null) {
+			snapshot = field.clone();
+		}
+		if (moveResults == null) {
+			moveResults = new MoveResult[positionOfBot.length];
+		}
+		if (moveResults[botNumber] == null) {
+			moveResults[botNumber] = new MoveResult(botNumber);
+		}
+		MoveResult moveResult = moveResults[botNumber];
+		if (moveResult.getRound() != currentRound) {
+			moveResult.startRound(currentRound);
+		}
+		return new BattlefieldView(moveResult, fieldSize, snapshot, positionOfBot[botNumber], actionLimitPolicy);
+	}
+
+	int getFieldSize() {
+		return fieldSize;
+	}
+
+	/**
+	 * @return EMPTY, MINE or the bot's number + 1
+	 */
+	int getCell(int position) {
+		return field[position];
 	}
 
 	public Battle getParentBattle() {
 		return parentBattle;
 	}
 
-	public void applyAction(Action action) {
-		Integer currentPositionOfBot = getPosition(action.getBotNumber());
-		if (currentPositionOfBot == null) {
-			LOGGER.log(Level.FINE, "Bot has already been destroyed. Skipping action for bot " + action.getBotNumber());
-			return;
-		}
-		LOGGER.log(Level.FINE, "Applying action " + action.getActionType() + " for bot " + action.getBotNumber());
-		switch (action.getActionType()) {
-		case MOVE:
-			move(action.getBotNumber(), currentPositionOfBot);
-			break;
-		case FIRE:
-			fire(action.getBotNumber(), action.getTargetPosition());
-			break;
-		case SET_MINE:
-			mine(action.getBotNumber(), action.getTargetPosition());
-			break;
-		default:
-			LOGGER.log(Level.SEVERE, "Unhandled action: " + action.getActionType());
-			break;
-		}
-		Integer thisBotsActionsBefore = history.get(action.getBotNumber()).get(action.getActionType());
-		if (thisBotsActionsBefore == null) {
-			thisBotsActionsBefore = 0;
-		}
-		history.get(action.getBotNumber()).put(action.getActionType(), thisBotsActionsBefore + 1);
+	public ActionEvent applyAction(Action action) {
+		ActionEvent event = resolve(action.getBotNumber(), action.getActionType(),
+				action.getTargetPosition() != null ? action.getTargetPosition() : NO_POSITION);
+		replay(event);
+		return event;
 	}
 
-	private void mine(int botNumber, Integer targetPosition) {
-		if (field.get(targetPosition) == null) {
-			field.put(targetPosition, new Mine());
-		} else {
-			LOGGER.log(Level.FINE, "Mining positions that are taken not possible. Skipping SET_MINE.");
+	/**
+	 * Applies the actions of a round one by one in their shuffled order, the
+	 * same as {@link #applyAction(Action)} without the Action objects. They
+	 * cannot be grouped per bot or resolved against one state of the field,
+	 * since every action sees the effects of the ones shuffled before it.
+	 * 
+	 * @param order
+	 *            an index into moveResults per action, see
+	 *            {@link Battle#mergeStableShuffled(List, SplittableRandom)}
+	 * @param events
+	 *            receives the events, has to hold one per action
+	 * @return the number of events
+	 */
+	int applyActions(List<MoveResult> moveResults, int[] order, ActionEvent[] events) {
+		int[] nextAction = new int[moveResults.size()];
+		for (int i = 0; i < order.length; i++) {
+			MoveResult moveResult = moveResults.get(order[i]);
+			int index = nextAction[order[i]]++;
+			ActionEvent event = resolve(moveResult.getBotNumber(), moveResult.getActionType(index),
+					moveResult.getTargetPosition(index));
+			replay(event);
+			events[i] = event;
 		}
+		return order.length;
 	}
 
-	private void move(int botNumber, int currentPosition) {
-		Integer nextFree = getNextFreePosition(currentPosition, true);
-		if (nextFree == null) {
-			LOGGER.log(Level.FINE, "No position to move to. Skipping MOVE.");
-			return;
+	/**
+	 * Removes a bot that broke the action limit from the field.
+	 */
+	ActionEvent disqualify(int botNumber, ActionType rejectedActionType) {
+		int currentPositionOfBot = positionOfBot[botNumber];
+		Outcome outcome = currentPositionOfBot != NO_POSITION ? Outcome.DISQUALIFIED : Outcome.SKIPPED;
+		if (LOG.isEnabled(trace)) {
+			LOG.log(trace, "Bot " + botNumber + " queued too many actions. Disqualifying it.");
 		}
-		// move the bot
-		field.put(currentPosition, null);
-		if (field.get(nextFree) == null) {
-			field.put(nextFree, parentBattle.getBot(botNumber));
-		} else {
-			if (!(field.get(nextFree) instanceof Mine)) {
-				throw new IllegalStateException("Field to move to was neither free nor a mine.");
+		ActionEvent event = new ActionEvent(currentRound, botNumber, rejectedActionType, outcome,
+				currentPositionOfBot, NO_POSITION);
+		replay(event);
+		return event;
+	}
+
+	void addRejectedActions(int botNumber, int actions) {
+		rejectedActions[botNumber] += actions;
+	}
+
+	public int getRejectedActions(int botNumber) {
+		return rejectedActions[botNumber];
+	}
+
+	/**
+	 * Evaluates the rules for the given action without changing the field.
+	 */
+	private ActionEvent resolve(int botNumber, ActionType actionType, int targetPosition) {
+		int currentPositionOfBot = positionOfBot[botNumber];
+		if (currentPositionOfBot == NO_POSITION) {
+			if (LOG.isEnabled(trace)) {
+				LOG.log(trace, "Bot has already been destroyed. Skipping action for bot " + botNumber);
 			}
-			LOGGER.log(Level.FINE, "Bot " + botNumber + " stepped on a mine.");
-			field.put(nextFree, null);
+			return new ActionEvent(currentRound, botNumber, actionType, Outcome.SKIPPED, NO_POSITION, NO_POSITION);
 		}
+		if (LOG.isEnabled(trace)) {
+			LOG.log(trace, "Applying action " + actionType + " for bot " + botNumber);
+		}
+		int fromPosition = NO_POSITION;
+		if (actionType == ActionType.MOVE) {
+			fromPosition = currentPositionOfBot;
+			targetPosition = Rules.getNextFreePosition(withoutBot, 0, fieldSize, currentPositionOfBot);
+		}
+		Outcome outcome = Rules.resolve(field, 0, fieldSize, botNumber, actionType, targetPosition);
+		if (LOG.isEnabled(trace)) {
+			logOutcome(botNumber, outcome, targetPosition);
+		}
+		return new ActionEvent(currentRound, botNumber, actionType, outcome, fromPosition, targetPosition);
 	}
 
-	private void fire(int botNumber, int targetPosition) {
-		if (targetPosition >= 0 && targetPosition < fieldSize) {
-			BattlefieldEntity firedAt = field.get(targetPosition);
-			if (firedAt == null) {
-				return;
-			}
-			field.remove(targetPosition);
-			if (firedAt instanceof Bot && ((Bot) firedAt).getBotNumber() == botNumber) {
-				LOGGER.log(Level.FINE, "Bot " + botNumber + " commited suicide.");
-			} else if (firedAt instanceof Mine) {
-				LOGGER.log(Level.FINE, "Bot " + botNumber + " destroyed a mine.");
+	private void logOutcome(int botNumber, Outcome outcome, int targetPosition) {
+		switch (outcome) {
+		case BLOCKED:
+			LOG.log(trace, "No position to move to. Skipping MOVE.");
+			break;
+		case STEPPED_ON_MINE:
+			LOG.log(trace, "Bot " + botNumber + " stepped on a mine.");
+			break;
+		case MISSED:
+			LOG.log(trace, "Bot " + botNumber + " fired outside of field.");
+			break;
+		case DESTROYED_MINE:
+			LOG.log(trace, "Bot " + botNumber + " destroyed a mine.");
+			break;
+		case SUICIDE:
+			LOG.log(trace, "Bot " + botNumber + " commited suicide.");
+			break;
+		case DESTROYED_BOT:
+			LOG.log(trace, "Bot " + botNumber + " destroyed bot " + (field[targetPosition] - 1));
+			break;
+		case MINE_REJECTED:
+			if (targetPosition < 0 || targetPosition >= fieldSize) {
+				LOG.log(trace, "Bot " + botNumber + " mined outside of field.");
 			} else {
-				LOGGER.log(Level.FINE, "Bot " + botNumber + " destroyed bot " + firedAt);
+				LOG.log(trace, "Mining positions that are taken not possible. Skipping SET_MINE.");
 			}
-		} else {
-			LOGGER.log(Level.FINE, "Bot " + botNumber + " fired outside of field.");
+			break;
+		default:
+			break;
 		}
 	}
 
-	private Integer getNextFreePosition(int currentPosition, boolean includeMined) {
-		for (int i = currentPosition + 1; i != currentPosition; i++) {
-			if (i == fieldSize) {
-				// overflow - this field is circular
-				i = -1;
-				continue;
-			}
-			if (field.get(i) == null) {
-				return i;
-			}
-			if (includeMined && field.get(i) instanceof Mine) {
-				return i;
-			}
+	/**
+	 * Applies the effects of an already resolved event.
+	 */
+	void replay(ActionEvent event) {
+		if (event.getOutcome() == Outcome.SKIPPED) {
+			return;
+		}
+		currentRound = event.getRound();
+		snapshot = null;
+		int botNumber = event.getBotNumber();
+		if (event.getOutcome() == Outcome.DISQUALIFIED) {
+			setCell(event.getFromPosition(), EMPTY);
+			destroyBot(botNumber);
+			return; // nothing the bot did
 		}
-		return null;
+		int destroyed = Rules.apply(field, withoutBot, 0, botNumber, event.getOutcome(), event.getFromPosition(),
+				event.getTargetPosition());
+		if (event.getOutcome() == Outcome.MOVED) {
+			positionOfBot[botNumber] = event.getTargetPosition();
+		}
+		if (destroyed != NO_POSITION) {
+			destroyBot(destroyed);
+		}
+		history[botNumber * ACTION_TYPES.length + event.getActionType().ordinal()]++;
 	}
 
-	private Integer getPosition(int botNumber) {
-		for (Entry<Integer, BattlefieldEntity> entry : field.entrySet()) {
-			if (entry.getValue() instanceof Bot && ((Bot) entry.getValue()).getBotNumber() == botNumber) {
-				return entry.getKey();
-			}
-		}
-		return null;
+	private void setCell(int position, int cell) {
+		Rules.setCell(field, withoutBot, position, cell);
+	}
+
+	/**
+	 * The bot's cell has to be cleared before.
+	 */
+	private void destroyBot(int botNumber) {
+		positionOfBot[botNumber] = NO_POSITION;
+		menStanding--;
+		sumOfBotsStanding -= botNumber;
 	}
 
 	/**
@@ -198,13 +348,12 @@ public class Battlefield {
 	public String getFieldRepresentation() {
 		StringBuilder sb = new StringBuilder();
 		for (int i = 0; i < fieldSize; i++) {
-			BattlefieldEntity entityOnField = field.get(i);
-			if (entityOnField == null) {
+			if (field[i] == EMPTY) {
 				sb.append("-");
-			} else if (entityOnField instanceof Mine) {
+			} else if (field[i] == MINE) {
 				sb.append("#");
 			} else {
-				sb.append(((Bot) entityOnField).getBotNumber());
+				sb.append(field[i] - 1);
 			}
 		}
 		return sb.toString();
@@ -219,8 +368,27 @@ public class Battlefield {
 		return getNumberOfMenStanding() == 0 || getWinner() != null;
 	}
 
+	/**
+	 * Built from the counters on every call, action types a bot has not used
+	 * yet are left out.
+	 */
 	public Map<Integer, Map<ActionType, Integer>> getHistory() {
-		return history;
+		Map<Integer, Map<ActionType, Integer>> result = new HashMap<>();
+		for (int bot = 0; bot < positionOfBot.length; bot++) {
+			Map<ActionType, Integer> botHistory = new EnumMap<>(ActionType.class);
+			for (ActionType actionType : ACTION_TYPES) {
+				int count = getHistoryCount(bot, actionType);
+				if (count > 0) {
+					botHistory.put(actionType, count);
+				}
+			}
+			result.put(bot, botHistory);
+		}
+		return result;
+	}
+
+	public int getHistoryCount(int botNumber, ActionType actionType) {
+		return history[botNumber * ACTION_TYPES.length + actionType.ordinal()];
 	}
 
 	public BattleStats getBattleStats() {
@@ -230,25 +398,91 @@ public class Battlefield {
 	public static class BattlefieldView {
 		private final MoveResult moveResult;
 		private final int size;
-		private final Map<Integer, BattlefieldEntity> _field;
-
+		private final int[] _field;
+		private final int myPosition;
+		private final ActionLimitPolicy actionLimitPolicy;
+		private final int round;
+
+		/**
+		 * Copies the entities into the array representation, positions
+		 * outside of the field are ignored.
+		 */
 		public BattlefieldView(int botNumber, int battlefieldSize, Map<Integer, BattlefieldEntity> field) {
+			this(botNumber, battlefieldSize, toField(battlefieldSize, field),
+					findPosition(botNumber, battlefieldSize, field));
+		}
+
+		/**
+		 * The field is shared between views and must not change afterwards.
+		 */
+		BattlefieldView(int botNumber, int battlefieldSize, int[] field, int myPosition) {
+			this(new MoveResult(botNumber), battlefieldSize, field, myPosition, ActionLimitPolicy.IGNORE);
+		}
+
+		BattlefieldView(MoveResult moveResult, int battlefieldSize, int[] field, int myPosition,
+				ActionLimitPolicy actionLimitPolicy) {
 			this.size = battlefieldSize;
-			this.moveResult = new MoveResult(botNumber);
-			this._field = new HashMap<>(field);
+			this.moveResult = moveResult;
+			this._field = field;
+			this.myPosition = myPosition;
+			this.actionLimitPolicy = actionLimitPolicy;
+			this.round = moveResult.getRound();
+		}
+
+		private static int[] toField(int battlefieldSize, Map<Integer, BattlefieldEntity> entities) {
+			int[] field = new int[battlefieldSize];
+			for (Map.Entry<Integer, BattlefieldEntity> entry : entities.entrySet()) {
+				int position = entry.getKey();
+				if (position < 0 || position >= battlefieldSize) {
+					continue;
+				}
+				if (entry.getValue() instanceof Bot) {
+					field[position] = ((Bot) entry.getValue()).getBotNumber() + 1;
+				} else if (entry.getValue() instanceof Mine) {
+					field[position] = MINE;
+				}
+			}
+			return field;
+		}
+
+		private static int findPosition(int botNumber, int battlefieldSize,
+				Map<Integer, BattlefieldEntity> entities) {
+			for (Map.Entry<Integer, BattlefieldEntity> entry : entities.entrySet()) {
+				int position = entry.getKey();
+				if (position >= 0 && position < battlefieldSize && entry.getValue() instanceof Bot
+						&& ((Bot) entry.getValue()).getBotNumber() == botNumber) {
+					return position;
+				}
+			}
+			return NO_POSITION;
 		}
 
 		public void move() {
-			this.moveResult.getActions().add(new Action(moveResult.getBotNumber(), null, ActionType.MOVE));
+			queue(ActionType.MOVE, NO_POSITION);
 		}
 
 		public void fire(int targetPosition) {
-			this.moveResult.getActions().add(new Action(moveResult.getBotNumber(), targetPosition, ActionType.FIRE));
+			queue(ActionType.FIRE, targetPosition);
 		}
 
 		public void mine(int targetPosition) {
-			this.moveResult.getActions()
-					.add(new Action(moveResult.getBotNumber(), targetPosition, ActionType.SET_MINE));
+			queue(ActionType.SET_MINE, targetPosition);
+		}
+
+		/**
+		 * Positions outside of the field all have the same effect. A view kept
+		 * past its round changes nothing.
+		 */
+		private void queue(ActionType actionType, int targetPosition) {
+			if (targetPosition < 0 || targetPosition >= size) {
+				targetPosition = NO_POSITION;
+			}
+			if (!moveResult.queue(round, actionType, targetPosition)) {
+				if (actionLimitPolicy == ActionLimitPolicy.THROW) {
+					throw new IllegalStateException(
+							"No actions left in this round, the limit is " + Constants.MAX_ACTIONS_PER_BOT + ".");
+				}
+			}
 		}
 
 		public int getSize() {
@@ -256,21 +490,14 @@ public class Battlefield {
 		}
 
 		public Integer getMyPosition() {
-			for (Entry<Integer, BattlefieldEntity> entry : _field.entrySet()) {
-				if (entry.getValue() instanceof Bot
-						&& ((Bot) entry.getValue()).getBotNumber() == moveResult.getBotNumber()) {
-					return entry.getKey();
-				}
-			}
-			return null;
+			return myPosition != NO_POSITION ? myPosition : null;
 		}
 
 		public Integer whoIsAtPosition(int position) {
-			BattlefieldEntity entity = _field.get(position);
-			if (entity instanceof Bot) {
-				return ((Bot) entity).getBotNumber();
+			if (position < 0 || position >= size || _field[position] <= EMPTY) {
+				return null;
 			}
-			return null;
+			return _field[position] - 1;
 		}
 
 		@Override
@@ -281,29 +508,18 @@ public class Battlefield {
 	}
 
 	public Integer getNumberOfMenStanding() {
-		List<BattlefieldEntity> menStanding = field.values().stream()
-				.filter(bot -> (bot != null && !(bot instanceof Mine))).collect(Collectors.toList());
-		return menStanding.size();
+		return menStanding;
 	}
 
 	public Bot getWinner() {
-		List<Bot> menStanding = field.values().stream().filter(bot -> (bot != null && !(bot instanceof Mine)))
-				.map(entity -> Bot.class.cast(entity)).collect(Collectors.toList());
-		if (menStanding.size() != 1) {
-			// LOGGER.log(Level.FINE, "No winner. Men standing are: " +
-			// menStanding);
+		if (menStanding != 1) {
 			return null;
 		}
-		return menStanding.get(0); // last man standing...
+		return parentBattle.getBot((int) sumOfBotsStanding); // last man standing...
 	}
 
 	public boolean isBotAlive(int bot) {
-		for (BattlefieldEntity field : this.field.values()) {
-			if (field != null && field instanceof Bot && ((Bot) field).getBotNumber() == bot) {
-				return true;
-			}
-		}
-		return false;
+		return positionOfBot[bot] != NO_POSITION;
 	}
 
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ public class Bot implements BattlefieldEntity {
 	private final int botNumber;
 	private final BotConfig botConfig;
 	private volatile Object data;
+	private volatile int scriptId = -1;
 
 	public Bot(int botNumber, BotConfig botConfig) {
 		this.botNumber = botNumber;
@@ -56,4 +57,28 @@ public class Bot implements BattlefieldEntity {
 		return this.data;
 	}
 
+	/**
+	 * NON-API
+	 * 
+	 * Only the first call has an effect, so the bot runs the same version of
+	 * its script for the whole battle.
+	 * 
+	 * @return the pinned script id
+	 */
+	public int pinScriptId(int scriptId) {
+		if (this.scriptId < 0) {
+			this.scriptId = scriptId;
+		}
+		return this.scriptId;
+	}
+
+	/**
+	 * NON-API
+	 * 
+	 * @return -1 until the bot's first turn
+	 */
+	public int getPinnedScriptId() {
+		return scriptId;
+	}
+
 }
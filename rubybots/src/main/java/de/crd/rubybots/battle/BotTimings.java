@@ -0,0 +1,88 @@
+package de.crd.rubybots.battle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent by every bot of a battle in its turns. Turns that ran over the
+ * engine's time budget are counted as forfeited.
+ */
+public class BotTimings {
+
+	private final int[] turns;
+	private final int[] forfeitedTurns;
+	private final long[] wallNanos;
+	private final long[] cpuNanos;
+	private final long[] maxWallNanos;
+
+	public BotTimings(int numberOfBots) {
+		this.turns = new int[numberOfBots];
+		this.forfeitedTurns = new int[numberOfBots];
+		this.wallNanos = new long[numberOfBots];
+		this.cpuNanos = new long[numberOfBots];
+		this.maxWallNanos = new long[numberOfBots];
+	}
+
+	private BotTimings(BotTimings toCopy) {
+		this.turns = toCopy.turns.clone();
+		this.forfeitedTurns = toCopy.forfeitedTurns.clone();
+		this.wallNanos = toCopy.wallNanos.clone();
+		this.cpuNanos = toCopy.cpuNanos.clone();
+		this.maxWallNanos = toCopy.maxWallNanos.clone();
+	}
+
+	synchronized void record(int botNumber, long wallNanos, long cpuNanos, boolean forfeited) {
+		turns[botNumber]++;
+		this.wallNanos[botNumber] += wallNanos;
+		this.cpuNanos[botNumber] += cpuNanos;
+		maxWallNanos[botNumber] = Math.max(maxWallNanos[botNumber], wallNanos);
+		if (forfeited) {
+			forfeitedTurns[botNumber]++;
+		}
+	}
+
+	synchronized BotTimings copy() {
+		return new BotTimings(this);
+	}
+
+	public int getNumberOfBots() {
+		return turns.length;
+	}
+
+	public int getTurns(int botNumber) {
+		return turns[botNumber];
+	}
+
+	public int getForfeitedTurns(int botNumber) {
+		return forfeitedTurns[botNumber];
+	}
+
+	public long getWallNanos(int botNumber) {
+		return wallNanos[botNumber];
+	}
+
+	/**
+	 * 0 if the JVM cannot measure thread CPU time.
+	 */
+	public long getCpuNanos(int botNumber) {
+		return cpuNanos[botNumber];
+	}
+
+	public long getMaxWallNanos(int botNumber) {
+		return maxWallNanos[botNumber];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("BotTimings [");
+		for (int i = 0; i < turns.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(i).append("={turns=").append(turns[i]).append(", forfeited=").append(forfeitedTurns[i])
+					.append(", wall=").append(TimeUnit.NANOSECONDS.toMillis(wallNanos[i])).append(" ms, cpu=")
+					.append(TimeUnit.NANOSECONDS.toMillis(cpuNanos[i])).append(" ms, maxWall=")
+					.append(TimeUnit.NANOSECONDS.toMillis(maxWallNanos[i])).append(" ms}");
+		}
+		return sb.append("]").toString();
+	}
+}
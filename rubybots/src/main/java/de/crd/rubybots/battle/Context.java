@@ -1,25 +1,37 @@
 package de.crd.rubybots.battle;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
 import de.crd.rubybots.battle.Battlefield.BattlefieldView;
+import de.crd.rubybots.bots.BotConfig;
+import de.crd.rubybots.logging.BattleTrace;
+import de.crd.rubybots.logging.EventLog;
 
 public class Context {
 
-	private static final Logger LOGGER = Logger.getLogger(Context.class.getSimpleName());
-	private final Battle battle;
+	private static final EventLog LOG = EventLog.getLog(Context.class);
+	private final Bot bot;
+	private final BattleTrace trace;
 	private final int botNumber;
 	private final int round; // note that this is counted from 1 onwards
 	private final BattlefieldView battlefield;
 	private final int numberOfBots;
+	private final long seed;
+
+	public Context(Battle battle, int botNumber, int round, BattlefieldView battlefieldView, int numberOfBots,
+			long seed) {
+		this(battle.getBot(botNumber), battle.getTrace(), round, battlefieldView, numberOfBots, seed);
+	}
 
-	public Context(Battle battle, int botNumber, int round, BattlefieldView battlefieldView, int numberOfBots) {
-		this.battle = battle;
-		this.botNumber = botNumber;
+	/**
+	 * For bots playing without a {@link Battle}, see {@link Simulation}.
+	 */
+	Context(Bot bot, BattleTrace trace, int round, BattlefieldView battlefieldView, int numberOfBots, long seed) {
+		this.bot = bot;
+		this.trace = trace;
+		this.botNumber = bot.getBotNumber();
 		this.round = round;
 		this.battlefield = battlefieldView;
 		this.numberOfBots = numberOfBots;
+		this.seed = seed;
 	}
 
 	public int getBotNumber() {
@@ -35,19 +47,64 @@ public class Context {
 	}
 	
 	public void storeData(Object data) {
-		this.battle.getBot(botNumber).storeData(data);
+		bot.storeData(data);
 	}
 	
 	public Object getStoredData() {
-		return this.battle.getBot(botNumber).getStoredData();
+		return bot.getStoredData();
 	}
 
 	public int getNumberOfBots() {
 		return numberOfBots;
 	}
 
+	/**
+	 * Ruby's rand is seeded with this before the bot is called.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
 	public void log(String log) {
-		LOGGER.log(Level.FINE, "Bot " + botNumber + ": " + log);
+		if (LOG.isEnabled(trace)) {
+			LOG.log(trace, "Bot " + botNumber + ": " + log);
+		}
+	}
+
+	/**
+	 * NON-API
+	 * 
+	 * Bots get the context, so what only the engine may see is extracted
+	 * through static methods. JRuby binds every non-private instance method,
+	 * like {@link Battlefield#extractMoveResult}.
+	 */
+	public static BattleTrace extractTrace(Context context) {
+		return context.trace;
+	}
+
+	/**
+	 * NON-API
+	 */
+	public static BotConfig extractBotConfig(Context context) {
+		return context.bot.getBotConfig();
+	}
+
+	/**
+	 * NON-API
+	 * 
+	 * @return -1 until the bot's first turn
+	 */
+	public static int extractPinnedScriptId(Context context) {
+		return context.bot.getPinnedScriptId();
+	}
+
+	/**
+	 * NON-API
+	 * 
+	 * @return the pinned script id
+	 */
+	public static int pinScriptId(Context context, int scriptId) {
+		return context.bot.pinScriptId(scriptId);
 	}
 
 	@Override
@@ -1,12 +1,27 @@
 package de.crd.rubybots.battle;
 
-import java.util.ArrayList;
-import java.util.List;
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.config.Constants;
 
+/**
+ * The actions a bot queued in one round. Actions are packed into ints, the
+ * target position + 1 above the type's ordinal, so queuing allocates nothing.
+ * The battlefield reuses the result of a bot in every round, views of earlier
+ * rounds can no longer queue into it. A bot's thread that was abandoned may
+ * still be queuing, so checking the round and queuing is atomic with starting
+ * the next round.
+ */
 public class MoveResult {
 
+	private static final ActionType[] ACTION_TYPES = ActionType.values();
+	private static final int TYPE_BITS = 2;
+	private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
 	private final int botNumber;
-	private final List<Action> actions = new ArrayList<>();
+	private final int[] actions = new int[Constants.MAX_ACTIONS_PER_BOT];
+	private int numberOfActions;
+	private int rejectedActions;
+	private ActionType firstRejectedActionType;
+	private int round;
 
 	public MoveResult(int botNumber) {
 		this.botNumber = botNumber;
@@ -14,15 +29,95 @@ public class MoveResult {
 
 	@Override
 	public String toString() {
-		return "MoveResult [botNumber=" + botNumber + "]";
+		return "MoveResult [botNumber=" + botNumber + ", numberOfActions=" + numberOfActions + ", rejectedActions="
+				+ rejectedActions + "]";
 	}
 
 	public int getBotNumber() {
 		return botNumber;
 	}
 
-	public List<Action> getActions() {
-		return actions;
+	/**
+	 * @param targetPosition
+	 *            -1 for none, at most 2^29 - 2
+	 * @return false if the bot has no actions left in this round
+	 */
+	boolean add(ActionType actionType, int targetPosition) {
+		if (numberOfActions == actions.length) {
+			return false;
+		}
+		actions[numberOfActions++] = (targetPosition + 1) << TYPE_BITS | actionType.ordinal();
+		return true;
+	}
+
+	/**
+	 * Actions of views of an earlier round are dropped.
+	 * 
+	 * @return false if the bot has no actions left in this round, the action
+	 *         is rejected then
+	 */
+	synchronized boolean queue(int round, ActionType actionType, int targetPosition) {
+		if (this.round != round) {
+			return true;
+		}
+		if (add(actionType, targetPosition)) {
+			return true;
+		}
+		reject(actionType);
+		return false;
+	}
+
+	void reject(ActionType actionType) {
+		if (rejectedActions++ == 0) {
+			firstRejectedActionType = actionType;
+		}
+	}
+
+	void clear() {
+		numberOfActions = 0;
+		rejectedActions = 0;
+		firstRejectedActionType = null;
+	}
+
+	/**
+	 * Discards the actions of the previous round.
+	 */
+	synchronized void startRound(int round) {
+		clear();
+		this.round = round;
+	}
+
+	/**
+	 * The round the actions are queued in.
+	 */
+	int getRound() {
+		return round;
+	}
+
+	/**
+	 * Actions queued after the bot had used up its actions.
+	 */
+	public int getRejectedActions() {
+		return rejectedActions;
+	}
+
+	public ActionType getFirstRejectedActionType() {
+		return firstRejectedActionType;
+	}
+
+	public int getNumberOfActions() {
+		return numberOfActions;
+	}
+
+	public ActionType getActionType(int index) {
+		return ACTION_TYPES[actions[index] & TYPE_MASK];
+	}
+
+	/**
+	 * @return -1 for moves
+	 */
+	public int getTargetPosition(int index) {
+		return (actions[index] >>> TYPE_BITS) - 1;
 	}
 
 }
@@ -0,0 +1,34 @@
+package de.crd.rubybots.battle;
+
+/**
+ * Records the events of one round on top of a snapshot taken before the first
+ * action. Any state of the round can be rebuilt from it on demand.
+ */
+class RoundJournal {
+
+	private final Battlefield keyframe;
+	private final ActionEvent[] events;
+	private int numberOfEvents;
+
+	RoundJournal(Battlefield battlefield, int capacity) {
+		this.keyframe = new Battlefield(battlefield);
+		this.events = new ActionEvent[capacity];
+	}
+
+	/**
+	 * @return the number of events recorded so far
+	 */
+	int append(ActionEvent event) {
+		events[numberOfEvents] = event;
+		return ++numberOfEvents;
+	}
+
+	Battlefield reconstruct(int numberOfEvents) {
+		Battlefield battlefield = new Battlefield(keyframe);
+		for (int i = 0; i < numberOfEvents; i++) {
+			battlefield.replay(events[i]);
+		}
+		return battlefield;
+	}
+
+}
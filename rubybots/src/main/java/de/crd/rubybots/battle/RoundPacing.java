@@ -0,0 +1,45 @@
+package de.crd.rubybots.battle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how long a battle waits after each round.
+ */
+public interface RoundPacing {
+
+	/**
+	 * @param roundStartNanos
+	 *            {@link System#nanoTime()} taken when the round started
+	 */
+	void afterRound(long roundStartNanos) throws InterruptedException;
+
+	/**
+	 * Runs the rounds as fast as possible. Meant for tournaments and CI.
+	 */
+	static RoundPacing headless() {
+		return roundStartNanos -> {
+		};
+	}
+
+	/**
+	 * Waits the same time after every round, no matter how long the round
+	 * took. Meant for spectating.
+	 */
+	static RoundPacing fixedRate(long millisBetweenRounds) {
+		return roundStartNanos -> Thread.sleep(millisBetweenRounds);
+	}
+
+	/**
+	 * Only waits for the remainder of the tick if the round took less than
+	 * the given budget.
+	 */
+	static RoundPacing frameBudget(long millisPerRound) {
+		final long nanosPerRound = TimeUnit.MILLISECONDS.toNanos(millisPerRound);
+		return roundStartNanos -> {
+			long remaining = nanosPerRound - (System.nanoTime() - roundStartNanos);
+			if (remaining > 0) {
+				TimeUnit.NANOSECONDS.sleep(remaining);
+			}
+		};
+	}
+}
@@ -0,0 +1,119 @@
+package de.crd.rubybots.battle;
+
+import java.util.BitSet;
+
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.battle.ActionEvent.Outcome;
+
+/**
+ * The rules of the game, shared by the {@link Battlefield} and the
+ * {@link Simulation}. A field is a slice of an int array starting at an
+ * offset, with cells encoded as in the Battlefield. The index holds a set bit
+ * for every cell without a bot and has to be kept in sync with the cells, see
+ * {@link #setCell(int[], BitSet, int, int)}.
+ */
+final class Rules {
+
+	private Rules() {
+	}
+
+	/**
+	 * Empty and mined cells both count as free. Scans the index a word at a
+	 * time, so a crowded field costs no more than an empty one.
+	 *
+	 * @return the next position or NO_POSITION if there is none
+	 */
+	static int getNextFreePosition(BitSet withoutBot, int offset, int fieldSize, int currentPosition) {
+		int next = withoutBot.nextSetBit(offset + currentPosition + 1);
+		if (next < 0 || next >= offset + fieldSize) {
+			// overflow - this field is circular
+			next = withoutBot.nextSetBit(offset);
+		}
+		// the current position holds the bot, so it is never found itself
+		return next >= 0 && next < offset + fieldSize ? next - offset : Battlefield.NO_POSITION;
+	}
+
+	/**
+	 * Evaluates an action of a bot that is still alive without changing the
+	 * field.
+	 *
+	 * @param targetPosition
+	 *            for a MOVE the next free position, see
+	 *            {@link #getNextFreePosition(BitSet, int, int, int)}
+	 */
+	static Outcome resolve(int[] field, int offset, int fieldSize, int botNumber, ActionType actionType,
+			int targetPosition) {
+		switch (actionType) {
+		case MOVE:
+			if (targetPosition == Battlefield.NO_POSITION) {
+				return Outcome.BLOCKED;
+			} else if (field[offset + targetPosition] == Battlefield.EMPTY) {
+				return Outcome.MOVED;
+			} else if (field[offset + targetPosition] == Battlefield.MINE) {
+				return Outcome.STEPPED_ON_MINE;
+			}
+			throw new IllegalStateException("Field to move to was neither free nor a mine.");
+		case FIRE:
+			if (targetPosition < 0 || targetPosition >= fieldSize) {
+				return Outcome.MISSED;
+			}
+			int cell = field[offset + targetPosition];
+			if (cell == Battlefield.EMPTY) {
+				return Outcome.HIT_NOTHING;
+			} else if (cell == Battlefield.MINE) {
+				return Outcome.DESTROYED_MINE;
+			}
+			return cell - 1 == botNumber ? Outcome.SUICIDE : Outcome.DESTROYED_BOT;
+		case SET_MINE:
+			if (targetPosition >= 0 && targetPosition < fieldSize
+					&& field[offset + targetPosition] == Battlefield.EMPTY) {
+				return Outcome.MINE_SET;
+			}
+			return Outcome.MINE_REJECTED;
+		default:
+			throw new IllegalStateException("Unhandled action: " + actionType);
+		}
+	}
+
+	/**
+	 * Changes the cells for a resolved action. Moving the bot's position and
+	 * counting the destroyed bot is up to the caller.
+	 *
+	 * @return the bot destroyed by the action or NO_POSITION
+	 */
+	static int apply(int[] field, BitSet withoutBot, int offset, int botNumber, Outcome outcome, int fromPosition,
+			int targetPosition) {
+		switch (outcome) {
+		case MOVED:
+			setCell(field, withoutBot, offset + fromPosition, Battlefield.EMPTY);
+			setCell(field, withoutBot, offset + targetPosition, botNumber + 1);
+			return Battlefield.NO_POSITION;
+		case STEPPED_ON_MINE:
+			setCell(field, withoutBot, offset + fromPosition, Battlefield.EMPTY);
+			setCell(field, withoutBot, offset + targetPosition, Battlefield.EMPTY);
+			return botNumber;
+		case MINE_SET:
+			setCell(field, withoutBot, offset + targetPosition, Battlefield.MINE);
+			return Battlefield.NO_POSITION;
+		case DESTROYED_MINE:
+			setCell(field, withoutBot, offset + targetPosition, Battlefield.EMPTY);
+			return Battlefield.NO_POSITION;
+		case DESTROYED_BOT:
+		case SUICIDE:
+			int victim = field[offset + targetPosition] - 1;
+			setCell(field, withoutBot, offset + targetPosition, Battlefield.EMPTY);
+			return victim;
+		default:
+			// nothing changes on the field
+			return Battlefield.NO_POSITION;
+		}
+	}
+
+	/**
+	 * Every change of a field goes through here to keep the index in sync.
+	 */
+	static void setCell(int[] field, BitSet withoutBot, int index, int cell) {
+		field[index] = cell;
+		withoutBot.set(index, cell <= Battlefield.EMPTY);
+	}
+}
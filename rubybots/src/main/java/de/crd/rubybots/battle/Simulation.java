@@ -0,0 +1,284 @@
+package de.crd.rubybots.battle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.battle.ActionEvent.Outcome;
+import de.crd.rubybots.battle.Battlefield.BattlefieldView;
+import de.crd.rubybots.bots.BotJavaConfig;
+import de.crd.rubybots.bots.BotStrategy;
+import de.crd.rubybots.config.Constants;
+import de.crd.rubybots.engine.EngineConfig.ActionLimitPolicy;
+import de.crd.rubybots.logging.BattleTrace;
+
+/**
+ * API ENTRY POINT
+ *
+ * Plays many battles between Java bots without an engine, e.g. to evaluate a
+ * strategy over a large number of random starts. The rules are those of the
+ * {@link Battlefield} and the randomness is derived like in a {@link Battle},
+ * so every simulated battle plays out the same way as a battle with its seed.
+ * <p>
+ * Battles are split into batches across a fork-join pool. A batch keeps the
+ * state of all its battles in flat arrays and advances them round by round.
+ * There are no time budgets, a bot throwing an exception loses its turn, and
+ * actions over the limit are ignored. The view a bot gets is only valid
+ * during its turn.
+ */
+public class Simulation {
+
+	private static final int BATCH_SIZE = 64;
+	private static final BattleTrace TRACE = new BattleTrace("simulation");
+	private final List<BotJavaConfig> botConfigs;
+	private final int numberOfRounds;
+
+	/**
+	 * @param numberOfRounds
+	 *            maximum length of a battle, battles without winner by then
+	 *            count as a draw
+	 */
+	public Simulation(List<BotJavaConfig> botConfigs, int numberOfRounds) {
+		if (botConfigs.isEmpty()) {
+			throw new IllegalArgumentException("There are no bots to simulate.");
+		}
+		if (numberOfRounds < 1) {
+			throw new IllegalArgumentException("Simulated battles need a number of rounds.");
+		}
+		this.botConfigs = new ArrayList<>(botConfigs);
+		this.numberOfRounds = numberOfRounds;
+	}
+
+	public SimulationResult run(int numberOfBattles, long seed) {
+		return run(numberOfBattles, seed, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * The seeds of all battles are derived from the given one, so the result
+	 * does not depend on the pool.
+	 */
+	public SimulationResult run(int numberOfBattles, long seed, ForkJoinPool pool) {
+		long[] seeds = new long[numberOfBattles];
+		SplittableRandom battleSeeds = new SplittableRandom(seed);
+		for (int i = 0; i < numberOfBattles; i++) {
+			seeds[i] = battleSeeds.nextLong();
+		}
+		int[] winners = new int[numberOfBattles];
+		int[] rounds = new int[numberOfBattles];
+		LongAdder failedTurns = new LongAdder();
+		pool.invoke(new BatchTask(seeds, winners, rounds, failedTurns, 0, numberOfBattles));
+		return new SimulationResult(botConfigs, seeds, winners, rounds, failedTurns.sum());
+	}
+
+	private class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final long[] seeds;
+		private final int[] winners;
+		private final int[] rounds;
+		private final LongAdder failedTurns;
+		private final int from;
+		private final int to;
+
+		BatchTask(long[] seeds, int[] winners, int[] rounds, LongAdder failedTurns, int from, int to) {
+			this.seeds = seeds;
+			this.winners = winners;
+			this.rounds = rounds;
+			this.failedTurns = failedTurns;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_SIZE) {
+				new Batch(seeds, from, to).run(winners, rounds, failedTurns);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new BatchTask(seeds, winners, rounds, failedTurns, from, middle),
+					new BatchTask(seeds, winners, rounds, failedTurns, middle, to));
+		}
+	}
+
+	/**
+	 * The battles of one task, battle i of the batch is battle from + i of
+	 * the simulation. Its field and bot positions start at i * fieldSize and
+	 * i * numberOfBots.
+	 */
+	private class Batch {
+
+		private final int from;
+		private final int numberOfBattles;
+		private final int numberOfBots;
+		private final int fieldSize;
+		private final BotStrategy[] strategies;
+		private final int[] field;
+		// cells without a bot, see Rules
+		private final BitSet withoutBot;
+		private final int[] positionOfBot;
+		private final int[] menStanding;
+		// equals the winner's number as soon as only one bot is left
+		private final long[] sumOfBotsStanding;
+		private final int[] currentRound;
+		private final Bot[] bots;
+		private final SplittableRandom[] mergeRandoms;
+		private final SplittableRandom[] turnSeeds;
+		// reused by every battle of the batch
+		private final int[] snapshot;
+		private final MoveResult[] moveResults;
+		private final List<MoveResult> roundResults;
+		private final int[] nextAction;
+		private long failedTurns;
+
+		Batch(long[] seeds, int from, int to) {
+			this.from = from;
+			this.numberOfBattles = to - from;
+			this.numberOfBots = botConfigs.size();
+			this.fieldSize = numberOfBots * Constants.SPACE_PER_BOT;
+			this.strategies = new BotStrategy[numberOfBots];
+			this.field = new int[numberOfBattles * fieldSize];
+			this.withoutBot = new BitSet(numberOfBattles * fieldSize);
+			withoutBot.set(0, numberOfBattles * fieldSize);
+			this.positionOfBot = new int[numberOfBattles * numberOfBots];
+			this.menStanding = new int[numberOfBattles];
+			this.sumOfBotsStanding = new long[numberOfBattles];
+			this.currentRound = new int[numberOfBattles];
+			this.bots = new Bot[numberOfBattles * numberOfBots];
+			this.mergeRandoms = new SplittableRandom[numberOfBattles];
+			this.turnSeeds = new SplittableRandom[numberOfBattles];
+			this.snapshot = new int[fieldSize];
+			this.moveResults = new MoveResult[numberOfBots];
+			this.roundResults = new ArrayList<>(numberOfBots);
+			this.nextAction = new int[numberOfBots];
+			for (int bot = 0; bot < numberOfBots; bot++) {
+				strategies[bot] = botConfigs.get(bot).getStrategy();
+				moveResults[bot] = new MoveResult(bot);
+			}
+			for (int battle = 0; battle < numberOfBattles; battle++) {
+				// split in the same order as by a battle
+				SplittableRandom random = new SplittableRandom(seeds[from + battle]);
+				initField(battle, random.split());
+				mergeRandoms[battle] = random.split();
+				turnSeeds[battle] = random.split();
+				for (int bot = 0; bot < numberOfBots; bot++) {
+					bots[battle * numberOfBots + bot] = new Bot(bot, botConfigs.get(bot));
+				}
+			}
+		}
+
+		/**
+		 * See {@link Battlefield#initField}.
+		 */
+		private void initField(int battle, SplittableRandom random) {
+			int offset = battle * fieldSize;
+			for (int bot = 0; bot < numberOfBots; bot++) {
+				int position = random.nextInt(fieldSize);
+				while (field[offset + position] != Battlefield.EMPTY) {
+					position++;
+					if (position >= fieldSize) {
+						position = 0;
+					}
+				}
+				Rules.setCell(field, withoutBot, offset + position, bot + 1);
+				positionOfBot[battle * numberOfBots + bot] = position;
+			}
+			menStanding[battle] = numberOfBots;
+			sumOfBotsStanding[battle] = (long) numberOfBots * (numberOfBots - 1) / 2;
+		}
+
+		void run(int[] winners, int[] rounds, LongAdder failedTurns) {
+			boolean running = true;
+			for (int round = 1; round <= numberOfRounds && running; round++) {
+				running = false;
+				for (int battle = 0; battle < numberOfBattles; battle++) {
+					if (!isOwned(battle)) {
+						currentRound[battle] = round;
+						playRound(battle, round);
+						running |= !isOwned(battle);
+					}
+				}
+			}
+			for (int battle = 0; battle < numberOfBattles; battle++) {
+				winners[from + battle] = menStanding[battle] == 1 ? (int) sumOfBotsStanding[battle] : -1;
+				rounds[from + battle] = currentRound[battle];
+			}
+			failedTurns.add(this.failedTurns);
+		}
+
+		private boolean isOwned(int battle) {
+			return menStanding[battle] <= 1;
+		}
+
+		/**
+		 * See {@link Battle#callAllBots}, every bot sees the field as it was
+		 * at the start of the round.
+		 */
+		private void playRound(int battle, int round) {
+			System.arraycopy(field, battle * fieldSize, snapshot, 0, fieldSize);
+			roundResults.clear();
+			for (int bot = 0; bot < numberOfBots; bot++) {
+				int position = positionOfBot[battle * numberOfBots + bot];
+				if (position == Battlefield.NO_POSITION) {
+					continue;
+				}
+				MoveResult moveResult = moveResults[bot];
+				moveResult.clear();
+				Context context = new Context(bots[battle * numberOfBots + bot], TRACE, round,
+						new BattlefieldView(moveResult, fieldSize, snapshot, position, ActionLimitPolicy.IGNORE),
+						numberOfBots, turnSeeds[battle].nextLong());
+				try {
+					strategies[bot].play(context);
+				} catch (RuntimeException | StackOverflowError | AssertionError | LinkageError e) {
+					// the same failures as in Engine#play
+					failedTurns++;
+					continue;
+				}
+				roundResults.add(moveResult);
+			}
+			int[] order = Battle.mergeStableShuffled(roundResults, mergeRandoms[battle]);
+			Arrays.fill(nextAction, 0);
+			for (int i = 0; i < order.length; i++) {
+				MoveResult moveResult = roundResults.get(order[i]);
+				int index = nextAction[order[i]]++;
+				apply(battle, moveResult.getBotNumber(), moveResult.getActionType(index),
+						moveResult.getTargetPosition(index));
+			}
+		}
+
+		/**
+		 * The rules of {@link Battlefield#applyAction(Action)} without events.
+		 */
+		private void apply(int battle, int botNumber, ActionType actionType, int targetPosition) {
+			int offset = battle * fieldSize;
+			int currentPosition = positionOfBot[battle * numberOfBots + botNumber];
+			if (currentPosition == Battlefield.NO_POSITION) {
+				return;
+			}
+			if (actionType == ActionType.MOVE) {
+				targetPosition = Rules.getNextFreePosition(withoutBot, offset, fieldSize, currentPosition);
+			}
+			Outcome outcome = Rules.resolve(field, offset, fieldSize, botNumber, actionType, targetPosition);
+			int destroyed = Rules.apply(field, withoutBot, offset, botNumber, outcome, currentPosition,
+					targetPosition);
+			if (outcome == Outcome.MOVED) {
+				positionOfBot[battle * numberOfBots + botNumber] = targetPosition;
+			}
+			if (destroyed != Battlefield.NO_POSITION) {
+				destroyBot(battle, destroyed);
+			}
+		}
+
+		private void destroyBot(int battle, int botNumber) {
+			positionOfBot[battle * numberOfBots + botNumber] = Battlefield.NO_POSITION;
+			menStanding[battle]--;
+			sumOfBotsStanding[battle] -= botNumber;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package de.crd.rubybots.battle;
+
+import java.util.List;
+
+import de.crd.rubybots.bots.BotJavaConfig;
+
+/**
+ * Outcome of every battle of a {@link Simulation}. A single battle can be
+ * watched by starting a battle with its seed and the same bots.
+ */
+public class SimulationResult {
+
+	private final List<BotJavaConfig> botConfigs;
+	private final long[] seeds;
+	// the winner's number or -1 for a draw
+	private final int[] winners;
+	private final int[] rounds;
+	private final int[] wins;
+	private final long failedTurns;
+
+	SimulationResult(List<BotJavaConfig> botConfigs, long[] seeds, int[] winners, int[] rounds, long failedTurns) {
+		this.botConfigs = botConfigs;
+		this.seeds = seeds;
+		this.winners = winners;
+		this.rounds = rounds;
+		this.failedTurns = failedTurns;
+		this.wins = new int[botConfigs.size()];
+		for (int winner : winners) {
+			if (winner >= 0) {
+				wins[winner]++;
+			}
+		}
+	}
+
+	public int getNumberOfBattles() {
+		return seeds.length;
+	}
+
+	public long getSeed(int battle) {
+		return seeds[battle];
+	}
+
+	/**
+	 * @return the winner's number or null if the battle ended without winner
+	 */
+	public Integer getWinner(int battle) {
+		return winners[battle] >= 0 ? winners[battle] : null;
+	}
+
+	public int getRounds(int battle) {
+		return rounds[battle];
+	}
+
+	public int getWins(int botNumber) {
+		return wins[botNumber];
+	}
+
+	public int getDraws() {
+		int draws = seeds.length;
+		for (int botWins : wins) {
+			draws -= botWins;
+		}
+		return draws;
+	}
+
+	public double getAverageRounds() {
+		long sum = 0;
+		for (int battleRounds : rounds) {
+			sum += battleRounds;
+		}
+		return seeds.length > 0 ? (double) sum / seeds.length : 0;
+	}
+
+	/**
+	 * Turns lost because the bot threw an exception.
+	 */
+	public long getFailedTurns() {
+		return failedTurns;
+	}
+
+	@Override
+	public String toString() {
+		String lineSeparator = System.getProperty("line.separator");
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Battles: %d  draws: %d  average rounds: %.1f  failed turns: %d", seeds.length,
+				getDraws(), getAverageRounds(), failedTurns));
+		sb.append(lineSeparator);
+		for (int bot = 0; bot < botConfigs.size(); bot++) {
+			sb.append(String.format("%3d. %-30s wins: %7d  win rate: %6.2f%%", bot, botConfigs.get(bot).getName(),
+					wins[bot], seeds.length == 0 ? 0 : 100.0 * wins[bot] / seeds.length));
+			sb.append(lineSeparator);
+		}
+		return sb.toString();
+	}
+}
@@ -1,17 +1,32 @@
 package de.crd.rubybots.bots;
 
-public class BotClasspathConfig implements BotConfig {
+public class BotClasspathConfig implements ScriptBotConfig {
 
 	private final String classpathReference;
+	private final String scriptLanguage;
 
 	public BotClasspathConfig(String classpathReference) {
+		this(classpathReference, ScriptBotConfig.getExtension(classpathReference));
+	}
+
+	/**
+	 * @param scriptLanguage
+	 *            file extension of the language the bot is written in
+	 */
+	public BotClasspathConfig(String classpathReference, String scriptLanguage) {
 		this.classpathReference = classpathReference;
+		this.scriptLanguage = scriptLanguage;
 	}
 
 	public String getClasspathReference() {
 		return classpathReference;
 	}
 
+	@Override
+	public String getScriptLanguage() {
+		return scriptLanguage;
+	}
+
 	@Override
 	public String getName() {
 		return classpathReference;
@@ -2,18 +2,33 @@ package de.crd.rubybots.bots;
 
 import java.io.File;
 
-public class BotFileConfig implements BotConfig {
+public class BotFileConfig implements ScriptBotConfig {
 
 	private final File botFile;
+	private final String scriptLanguage;
 
 	public BotFileConfig(File botFile) {
+		this(botFile, ScriptBotConfig.getExtension(botFile.getName()));
+	}
+
+	/**
+	 * @param scriptLanguage
+	 *            file extension of the language the bot is written in
+	 */
+	public BotFileConfig(File botFile, String scriptLanguage) {
 		this.botFile = botFile;
+		this.scriptLanguage = scriptLanguage;
 	}
 
 	public File getBotFile() {
 		return botFile;
 	}
 
+	@Override
+	public String getScriptLanguage() {
+		return scriptLanguage;
+	}
+
 	@Override
 	public String getName() {
 		return botFile.getName();
@@ -0,0 +1,81 @@
+package de.crd.rubybots.bots;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+public class BotJavaConfig implements BotConfig {
+
+	private final BotStrategy strategy;
+	private final String name;
+
+	public BotJavaConfig(BotStrategy strategy) {
+		this(strategy, strategy.getClass().getSimpleName());
+	}
+
+	public BotJavaConfig(BotStrategy strategy, String name) {
+		this.strategy = strategy;
+		this.name = name;
+	}
+
+	/**
+	 * @param className
+	 *            a {@link BotStrategy} on the classpath with a public no-arg
+	 *            constructor
+	 */
+	public static BotJavaConfig forClass(String className) {
+		try {
+			return new BotJavaConfig(
+					Class.forName(className).asSubclass(BotStrategy.class).getDeclaredConstructor().newInstance());
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IllegalArgumentException("Bot " + className + " could not be created: " + e);
+		}
+	}
+
+	/**
+	 * One config for every bot the jar provides as a service.
+	 */
+	public static List<BotJavaConfig> fromJar(File jar) throws IOException {
+		// stays open, the bots' classes are loaded while they play
+		URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() },
+				BotStrategy.class.getClassLoader());
+		List<BotJavaConfig> botConfigs = new ArrayList<>();
+		try {
+			Iterator<BotStrategy> strategies = ServiceLoader.load(BotStrategy.class, classLoader).iterator();
+			while (strategies.hasNext()) {
+				BotStrategy strategy = strategies.next();
+				// the parent's services are found as well
+				if (strategy.getClass().getClassLoader() == classLoader) {
+					botConfigs.add(new BotJavaConfig(strategy));
+				}
+			}
+		} catch (ServiceConfigurationError e) {
+			throw new IllegalArgumentException("Bots of " + jar + " could not be created: " + e.getMessage());
+		}
+		if (botConfigs.isEmpty()) {
+			throw new IllegalArgumentException("No bots found in " + jar + ".");
+		}
+		return botConfigs;
+	}
+
+	public BotStrategy getStrategy() {
+		return strategy;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return "BotJavaConfig [name=" + name + ", strategy=" + strategy.getClass().getName() + "]";
+	}
+
+}
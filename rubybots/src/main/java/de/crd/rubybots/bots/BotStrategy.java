@@ -0,0 +1,20 @@
+package de.crd.rubybots.bots;
+
+import de.crd.rubybots.battle.Context;
+
+/**
+ * A bot implemented in Java. It gets the same context as a Ruby bot and is
+ * called directly on the engine's threads, without any script runtime.
+ * <p>
+ * One instance plays in every battle its config takes part in, possibly in
+ * several at once, so state belongs in {@link Context#storeData(Object)}.
+ * Randomness should be derived from {@link Context#getSeed()} to keep seeded
+ * battles reproducible. A bot running over its time budget is interrupted.
+ * <p>
+ * Jars provide their bots as services, listed in
+ * <code>META-INF/services/de.crd.rubybots.bots.BotStrategy</code>.
+ */
+public interface BotStrategy {
+
+	void play(Context context);
+}
@@ -0,0 +1,94 @@
+package de.crd.rubybots.bots;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reports bot files that are created or changed in the watched directories.
+ * Editors tend to write a file in several steps, so changes are collected
+ * until the directories have been quiet for a moment and every file is
+ * reported once.
+ */
+public class BotWatcher implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(BotWatcher.class.getSimpleName());
+	private static final long QUIET_PERIOD_MILLIS = 200L;
+	private final WatchService watchService;
+	private final Consumer<File> listener;
+	private final Thread thread;
+
+	/**
+	 * @param listener
+	 *            called on the watcher's thread
+	 */
+	public BotWatcher(Consumer<File> listener) throws IOException {
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.listener = listener;
+		this.thread = new Thread(this::watch, "RubyBots-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void watch(File directory) throws IOException {
+		directory.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				Set<File> changedFiles = new LinkedHashSet<>();
+				WatchKey key = watchService.take();
+				do {
+					collectChangedFiles(key, changedFiles);
+				} while ((key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null);
+				for (File changedFile : changedFiles) {
+					if (changedFile.isFile()) {
+						notifyListener(changedFile);
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	private void notifyListener(File changedFile) {
+		try {
+			listener.accept(changedFile);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.SEVERE, "Change of " + changedFile + " could not be handled.", e);
+		}
+	}
+
+	private static void collectChangedFiles(WatchKey key, Set<File> changedFiles) {
+		Path directory = (Path) key.watchable();
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				LOGGER.log(Level.WARNING, "Changes in " + directory + " were lost.");
+				continue;
+			}
+			changedFiles.add(directory.resolve((Path) event.context()).toFile());
+		}
+		key.reset();
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+}
@@ -0,0 +1,42 @@
+package de.crd.rubybots.bots;
+
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+
+/**
+ * A bot given as a script. The language decides which backend executes it.
+ */
+public interface ScriptBotConfig extends BotConfig {
+
+	/**
+	 * The file extension of the script unless it was given explicitly, e.g.
+	 * <code>rb</code> for Ruby.
+	 */
+	public String getScriptLanguage();
+
+	/**
+	 * Files without an extension, or with one no script engine is registered
+	 * for, are Ruby bots, as they were before other languages could be used.
+	 */
+	static String getExtension(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		if (dot <= fileName.lastIndexOf('/') || dot == fileName.length() - 1) {
+			return "rb";
+		}
+		String extension = fileName.substring(dot + 1).toLowerCase();
+		return isScriptLanguage(extension) ? extension : "rb";
+	}
+
+	/**
+	 * @return whether a JSR-223 engine on the classpath runs files with the
+	 *         extension
+	 */
+	static boolean isScriptLanguage(String extension) {
+		for (ScriptEngineFactory factory : new ScriptEngineManager().getEngineFactories()) {
+			if (factory.getExtensions().contains(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,55 @@
+package de.crd.rubybots.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the command line into options (<code>--name</code> or
+ * <code>--name=value</code>) and the remaining arguments.
+ */
+public class CommandLineOptions {
+
+	private static final String OPTION_PREFIX = "--";
+	private final Map<String, String> options = new HashMap<>();
+	private final List<String> arguments = new ArrayList<>();
+
+	public CommandLineOptions(String[] args) {
+		if (args == null) {
+			return;
+		}
+		for (String arg : args) {
+			if (arg.startsWith(OPTION_PREFIX) && arg.length() > OPTION_PREFIX.length()) {
+				int separator = arg.indexOf('=');
+				if (separator < 0) {
+					options.put(arg.substring(OPTION_PREFIX.length()), null);
+				} else {
+					options.put(arg.substring(OPTION_PREFIX.length(), separator), arg.substring(separator + 1));
+				}
+			} else {
+				arguments.add(arg);
+			}
+		}
+	}
+
+	public boolean hasOption(String name) {
+		return options.containsKey(name);
+	}
+
+	public String getOption(String name, String defaultValue) {
+		String value = options.get(name);
+		return value != null ? value : defaultValue;
+	}
+
+	public List<String> getArguments() {
+		return Collections.unmodifiableList(arguments);
+	}
+
+	@Override
+	public String toString() {
+		return "CommandLineOptions [options=" + options + ", arguments=" + arguments + "]";
+	}
+
+}
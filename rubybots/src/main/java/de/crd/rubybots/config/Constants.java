@@ -3,6 +3,7 @@ package de.crd.rubybots.config;
 public class Constants {
 	public static final int MAX_ACTIONS_PER_BOT = 4;
 	public static final int SPACE_PER_BOT = 20;
+	public static final long TIME_BETWEEN_ROUNDS = 1000L;
 
 	private Constants() {
 
@@ -0,0 +1,227 @@
+package de.crd.rubybots.engine;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.crd.rubybots.RubyBots.BattleStatsUpdateListener;
+import de.crd.rubybots.battle.BattleStats;
+
+/**
+ * Hands battle stats to any number of listeners. Every listener is served by
+ * its own thread and buffer, so a slow listener neither delays the others nor
+ * lets memory grow.
+ */
+public class BattleStatsPublisher {
+
+	private static final Logger LOGGER = Logger.getLogger(BattleStatsPublisher.class.getSimpleName());
+	private static final long POLL_INTERVAL = 100L;
+	private static final long SHUTDOWN_TIMEOUT = 5000L;
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+	private volatile boolean closed;
+
+	/**
+	 * @param capacity
+	 *            size of the buffer, only used for {@link DeliveryMode#LOSSLESS}
+	 * @param minIntervalMillis
+	 *            minimum time between two deliveries to this listener
+	 */
+	public void subscribe(BattleStatsUpdateListener listener, DeliveryMode deliveryMode, int capacity,
+			long minIntervalMillis) {
+		Subscriber subscriber = deliveryMode == DeliveryMode.LOSSLESS
+				? new LosslessSubscriber(listener, minIntervalMillis, capacity)
+				: new LatestSubscriber(listener, minIntervalMillis);
+		subscriber.thread = new Thread(subscriber, "RubyBots-stats-" + (subscribers.size() + 1));
+		subscriber.thread.setDaemon(true);
+		subscribers.add(subscriber);
+		subscriber.thread.start();
+	}
+
+	public boolean hasSubscribers() {
+		return !subscribers.isEmpty();
+	}
+
+	/**
+	 * Stats waiting to be delivered, summed up over all subscribers.
+	 */
+	public int getQueueDepth() {
+		int queueDepth = 0;
+		for (Subscriber subscriber : subscribers) {
+			queueDepth += subscriber.size();
+		}
+		return queueDepth;
+	}
+
+	/**
+	 * Blocks if a lossless subscriber's buffer is full. Once the publisher is
+	 * shut down, stats are dropped.
+	 */
+	public void publish(BattleStats battleStats) {
+		if (closed) {
+			return;
+		}
+		for (Subscriber subscriber : subscribers) {
+			subscriber.offer(battleStats);
+		}
+	}
+
+	/**
+	 * Subscribers deliver what they have buffered and stop afterwards. Waits
+	 * for that, at most a few seconds in total, so the process may exit right
+	 * after.
+	 */
+	public void shutdown() {
+		closed = true;
+		long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT;
+		for (Subscriber subscriber : subscribers) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (subscriber.thread == Thread.currentThread() || remaining <= 0) {
+				continue;
+			}
+			try {
+				subscriber.thread.join(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (subscriber.thread.isAlive()) {
+				LOGGER.log(Level.WARNING, subscriber.size() + " stats were not delivered to a subscriber.");
+			}
+		}
+	}
+
+	public enum DeliveryMode {
+		/** only the most recent stats are delivered, older ones are dropped */
+		LATEST,
+		/** every stats object is delivered, publishing blocks when the buffer is full */
+		LOSSLESS;
+	}
+
+	private abstract class Subscriber implements Runnable {
+
+		private final BattleStatsUpdateListener listener;
+		private final long minIntervalMillis;
+		private Thread thread;
+
+		Subscriber(BattleStatsUpdateListener listener, long minIntervalMillis) {
+			this.listener = listener;
+			this.minIntervalMillis = minIntervalMillis;
+		}
+
+		abstract void offer(BattleStats battleStats);
+
+		abstract BattleStats poll(long timeoutMillis) throws InterruptedException;
+
+		abstract int size();
+
+		boolean isStopped() {
+			return closed || !thread.isAlive();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					BattleStats battleStats = poll(POLL_INTERVAL);
+					if (battleStats == null) {
+						if (closed) {
+							return;
+						}
+						continue;
+					}
+					long deliveryStart = System.currentTimeMillis();
+					deliver(battleStats);
+					long remaining = minIntervalMillis - (System.currentTimeMillis() - deliveryStart);
+					if (remaining > 0) {
+						Thread.sleep(remaining);
+					}
+				}
+			} catch (InterruptedException e) {
+				LOGGER.log(Level.FINE, "Stats subscriber interrupted.");
+			}
+		}
+
+		/**
+		 * A failing listener misses these stats but keeps its subscription,
+		 * so a lossless buffer never stays full.
+		 */
+		private void deliver(BattleStats battleStats) {
+			try {
+				listener.onBattleStatsUpdate(battleStats);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.SEVERE, "Stats listener failed.", e);
+			}
+		}
+	}
+
+	private class LatestSubscriber extends Subscriber {
+
+		private BattleStats latest;
+
+		LatestSubscriber(BattleStatsUpdateListener listener, long minIntervalMillis) {
+			super(listener, minIntervalMillis);
+		}
+
+		@Override
+		synchronized void offer(BattleStats battleStats) {
+			latest = battleStats;
+			notifyAll();
+		}
+
+		@Override
+		synchronized BattleStats poll(long timeoutMillis) throws InterruptedException {
+			if (latest == null) {
+				wait(timeoutMillis);
+			}
+			BattleStats battleStats = latest;
+			latest = null;
+			return battleStats;
+		}
+
+		@Override
+		synchronized int size() {
+			return latest != null ? 1 : 0;
+		}
+	}
+
+	private class LosslessSubscriber extends Subscriber {
+
+		private final BlockingQueue<BattleStats> buffer;
+
+		LosslessSubscriber(BattleStatsUpdateListener listener, long minIntervalMillis, int capacity) {
+			super(listener, minIntervalMillis);
+			this.buffer = new ArrayBlockingQueue<>(capacity);
+		}
+
+		/**
+		 * Gives up on the stats if the subscriber stops while the buffer is
+		 * full, nobody would ever make room then.
+		 */
+		@Override
+		void offer(BattleStats battleStats) {
+			try {
+				while (!buffer.offer(battleStats, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+					if (isStopped()) {
+						return;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		BattleStats poll(long timeoutMillis) throws InterruptedException {
+			return buffer.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		int size() {
+			return buffer.size();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package de.crd.rubybots.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compiled bots on disk, found by the hash of their source and the version of
+ * the compiler. The least recently used entries are deleted once the cache
+ * grows over its size. Several processes may share the directory, each one
+ * only bounds what it has seen.
+ */
+class BotCache {
+
+	private static final Logger LOGGER = Logger.getLogger(BotCache.class.getSimpleName());
+	private static final String SUFFIX = ".ir";
+	private final Path directory;
+	private final long maxBytes;
+	// size by key in access order, the eldest entry is evicted first
+	private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	BotCache(File directory, long maxBytes) {
+		this.directory = directory.toPath();
+		this.maxBytes = maxBytes;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalStateException("Bot cache " + directory + " could not be created.");
+		}
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			String name = file.getName();
+			entries.put(name.substring(0, name.length() - SUFFIX.length()), file.length());
+			bytes += file.length();
+		}
+	}
+
+	/**
+	 * @param version
+	 *            of whatever produced the compiled form
+	 */
+	static String getKey(String version, String bot) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(version.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			StringBuilder key = new StringBuilder();
+			for (byte b : digest.digest(bot.getBytes(StandardCharsets.UTF_8))) {
+				key.append(String.format("%02x", b));
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}
+	}
+
+	/**
+	 * @return null if the bot is not cached
+	 */
+	byte[] get(String key) {
+		Path file = directory.resolve(key + SUFFIX);
+		try {
+			byte[] compiled = Files.readAllBytes(file);
+			// other processes see the access as well
+			file.toFile().setLastModified(System.currentTimeMillis());
+			synchronized (this) {
+				Long size = entries.put(key, (long) compiled.length);
+				bytes += compiled.length - (size != null ? size : 0L);
+			}
+			hits.incrementAndGet();
+			return compiled;
+		} catch (NoSuchFileException e) {
+			forget(key);
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Cached bot " + key + " could not be read: " + e.getMessage());
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Failing to write only costs the next start the compilation.
+	 */
+	void put(String key, byte[] compiled) {
+		try {
+			Path temporary = Files.createTempFile(directory, key, ".tmp");
+			Files.write(temporary, compiled);
+			// readers in other processes never see a partial file
+			Files.move(temporary, directory.resolve(key + SUFFIX), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Bot " + key + " could not be cached: " + e.getMessage());
+			return;
+		}
+		synchronized (this) {
+			Long size = entries.put(key, (long) compiled.length);
+			bytes += compiled.length - (size != null ? size : 0L);
+			evict();
+		}
+	}
+
+	/**
+	 * For entries that turned out to be unusable.
+	 */
+	void remove(String key) {
+		try {
+			Files.deleteIfExists(directory.resolve(key + SUFFIX));
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Cached bot " + key + " could not be deleted: " + e.getMessage());
+		}
+		forget(key);
+	}
+
+	private synchronized void forget(String key) {
+		Long size = entries.remove(key);
+		if (size != null) {
+			bytes -= size;
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+		// the entry just written stays even if it is larger than the cache
+		while (bytes > maxBytes && entries.size() > 1) {
+			Map.Entry<String, Long> entry = eldest.next();
+			try {
+				Files.deleteIfExists(directory.resolve(entry.getKey() + SUFFIX));
+			} catch (IOException e) {
+				LOGGER.log(Level.FINE, "Cached bot " + entry.getKey() + " could not be evicted: " + e.getMessage());
+			}
+			bytes -= entry.getValue();
+			eldest.remove();
+		}
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	synchronized long getBytes() {
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return "BotCache [directory=" + directory + ", maxBytes=" + maxBytes + ", bytes=" + getBytes() + ", hits="
+				+ hits + ", misses=" + misses + "]";
+	}
+}
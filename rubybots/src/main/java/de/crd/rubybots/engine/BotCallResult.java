@@ -0,0 +1,63 @@
+package de.crd.rubybots.engine;
+
+import javax.script.ScriptException;
+
+import de.crd.rubybots.battle.Context;
+
+public class BotCallResult {
+
+	private final Context context;
+	private final ScriptException error;
+	private final long wallNanos;
+	private final long cpuNanos;
+	private final boolean timedOut;
+
+	public BotCallResult(Context context, ScriptException error) {
+		this(context, error, 0L, 0L, false);
+	}
+
+	public BotCallResult(Context context, ScriptException error, long wallNanos, long cpuNanos, boolean timedOut) {
+		this.context = context;
+		this.error = error;
+		this.wallNanos = wallNanos;
+		this.cpuNanos = cpuNanos;
+		this.timedOut = timedOut;
+	}
+
+	public Context getContext() {
+		return context;
+	}
+
+	public ScriptException getError() {
+		return error;
+	}
+
+	public boolean isSuccessful() {
+		return error == null;
+	}
+
+	public long getWallNanos() {
+		return wallNanos;
+	}
+
+	/**
+	 * 0 if the JVM cannot measure thread CPU time.
+	 */
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	/**
+	 * The bot ran over its time budget and was stopped. Its turn is forfeited.
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	@Override
+	public String toString() {
+		return "BotCallResult [botNumber=" + context.getBotNumber() + ", successful=" + isSuccessful() + ", timedOut="
+				+ timedOut + ", wallNanos=" + wallNanos + ", cpuNanos=" + cpuNanos + "]";
+	}
+
+}
@@ -0,0 +1,67 @@
+package de.crd.rubybots.engine;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What loading the bot files took. Bots with the same script share one
+ * compiled script.
+ */
+public class BotLoadSummary {
+
+	private final int bots;
+	private final int scripts;
+	private final long bytes;
+	private final long readNanos;
+	private final long compileNanos;
+	private final Map<String, String> failures;
+
+	public BotLoadSummary(int bots, int scripts, long bytes, long readNanos, long compileNanos,
+			Map<String, String> failures) {
+		this.bots = bots;
+		this.scripts = scripts;
+		this.bytes = bytes;
+		this.readNanos = readNanos;
+		this.compileNanos = compileNanos;
+		this.failures = Collections.unmodifiableMap(failures);
+	}
+
+	public int getBots() {
+		return bots;
+	}
+
+	/**
+	 * Distinct scripts among the bots that could be read.
+	 */
+	public int getScripts() {
+		return scripts;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getReadNanos() {
+		return readNanos;
+	}
+
+	public long getCompileNanos() {
+		return compileNanos;
+	}
+
+	/**
+	 * The reason by file for every bot that could not be read or compiled.
+	 */
+	public Map<String, String> getFailures() {
+		return failures;
+	}
+
+	@Override
+	public String toString() {
+		return "Loaded " + bots + " bots from files (" + scripts + " distinct scripts, " + bytes
+				+ " bytes). Reading took " + TimeUnit.NANOSECONDS.toMillis(readNanos) + " ms, compiling "
+				+ TimeUnit.NANOSECONDS.toMillis(compileNanos) + " ms. Failed: " + failures.size() + ".";
+	}
+
+}
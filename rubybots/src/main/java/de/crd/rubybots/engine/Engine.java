@@ -1,87 +1,865 @@
 package de.crd.rubybots.engine;
 
 import java.io.BufferedReader;
-import java.io.FileInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import javax.script.Bindings;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.script.ScriptException;
-import javax.script.SimpleBindings;
 
 import de.crd.rubybots.RubyBots;
 import de.crd.rubybots.RubyBots.BattleStatsUpdateListener;
-import de.crd.rubybots.battle.BattleStats;
+import de.crd.rubybots.battle.Bot;
 import de.crd.rubybots.battle.Context;
 import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.bots.BotConfig;
 import de.crd.rubybots.bots.BotFileConfig;
+import de.crd.rubybots.bots.BotJavaConfig;
+import de.crd.rubybots.bots.BotStrategy;
+import de.crd.rubybots.bots.ScriptBotConfig;
+import de.crd.rubybots.engine.BattleStatsPublisher.DeliveryMode;
+import de.crd.rubybots.logging.EventLog;
+import de.crd.rubybots.metrics.Metrics;
 
 public class Engine {
 	private static final Logger LOGGER = Logger.getLogger(Engine.class.getSimpleName());
-	private volatile ScriptEngine jruby;
-	private final List<String> bots = new ArrayList<>();
+	private static final EventLog LOG = EventLog.getLog(Engine.class);
+	private static final long LANE_TERMINATION_TIMEOUT = 1000L;
+	private static final long BUDGET_CHECK_INTERVAL = 5L;
+	private static final long STOP_GRACE_PERIOD = 500L;
+	private static final long MAP_THRESHOLD = 64 * 1024L;
+	// the backend of Java bots in the metrics, scripts are named by their language
+	private static final String JAVA_BACKEND = "java";
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+	private static final AtomicInteger ENGINE_COUNT = new AtomicInteger();
+	// lanes that stop responding are replaced while other battles are running
+	private final List<ScriptRuntime> runtimes = new CopyOnWriteArrayList<>();
+	private final List<ExecutorService> lanes = new CopyOnWriteArrayList<>();
+	private final AtomicInteger lanesReplaced = new AtomicInteger();
+	// battles may use any subset of the loaded bots, so scripts are found by
+	// config. A reloaded bot gets a new script id, the old one stays compiled
+	// for the battles still running it.
+	private final Map<BotConfig, Integer> scriptIds = Collections.synchronizedMap(new IdentityHashMap<>());
+	private int nextScriptId;
+	// bots of running battles by the script id they are pinned to, guards
+	// supersededScripts as well
+	private final Map<Integer, Integer> pinnedScripts = new HashMap<>();
+	// replaced by a reload, released with the last battle running them
+	private final Set<Integer> supersededScripts = new HashSet<>();
+	// every loaded bot has an id of its own, even if it shares its script.
+	// It decides the bot's lane and keys its metrics.
+	private final Map<BotConfig, Integer> botIds = Collections.synchronizedMap(new IdentityHashMap<>());
+	private int nextBotId;
+	// script id by language and source, bots with the same script share it
+	private final Map<String, Integer> compiledScripts = new ConcurrentHashMap<>();
+	private final Map<Integer, String> sources = new ConcurrentHashMap<>();
+	private final Map<Integer, String> languages = new ConcurrentHashMap<>();
+	// by script id, the lanes of the bots running the script
+	private final Map<Integer, Set<Integer>> lanesOfScripts = new ConcurrentHashMap<>();
+	// bots implemented in Java share the script ids, but have no source
+	private final Map<Integer, BotStrategy> strategies = new ConcurrentHashMap<>();
+	// runtimes of languages other than Ruby, one per lane like the JRuby ones
+	private final Map<String, List<ScriptRuntime>> otherRuntimes = new ConcurrentHashMap<>();
 	private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
 	private volatile boolean preparingEngine;
-	private final BlockingQueue<BattleStats> battleStatsUpdateQueue = new LinkedBlockingQueue<>();
-	private final BattleStatsUpdateListener battleStatsUpdateListener;
+	private final BattleStatsPublisher battleStatsPublisher = new BattleStatsPublisher();
+	private final EngineConfig engineConfig;
+	private final RuntimePool runtimePool;
+	private final BotCache botCache;
+	private final Metrics metrics = new Metrics();
+	private ObjectName metricsName;
 
 	public Engine(BattleStatsUpdateListener listener) {
-		this.battleStatsUpdateListener = listener;
+		this(listener, new EngineConfig());
+	}
+
+	/**
+	 * The listener gets the latest stats as often as it can keep up. It may be
+	 * null if stats are subscribed to separately.
+	 */
+	public Engine(BattleStatsUpdateListener listener, EngineConfig engineConfig) {
+		this.engineConfig = engineConfig;
+		this.runtimePool = engineConfig.getRuntimePool() != null ? engineConfig.getRuntimePool()
+				: new RuntimePool(0, engineConfig.getCompileMode());
+		this.botCache = engineConfig.getBotCacheDirectory() != null
+				? new BotCache(engineConfig.getBotCacheDirectory(), engineConfig.getBotCacheMaxBytes())
+				: null;
+		if (listener != null) {
+			battleStatsPublisher.subscribe(listener, DeliveryMode.LATEST, 1, 0L);
+		}
+		registerMetrics();
+	}
+
+	private void registerMetrics() {
+		metrics.registerGauge("statsQueueDepth", battleStatsPublisher::getQueueDepth);
+		metrics.registerGauge("runtimes", runtimes::size);
+		metrics.registerGauge("lanes", lanes::size);
+		metrics.registerGauge("lanesReplaced", lanesReplaced::get);
+		metrics.registerGauge("scripts", sources::size);
+		metrics.registerGauge("idleRuntimes", runtimePool::getIdle);
+		metrics.registerGauge("runtimesCreated", runtimePool::getCreated);
+		metrics.registerGauge("runtimesDiscarded", runtimePool::getDiscarded);
+		metrics.registerGauge("runtimePoolHits", runtimePool::getHits);
+		metrics.registerGauge("runtimePoolMisses", runtimePool::getMisses);
+		if (botCache != null) {
+			metrics.registerGauge("botCacheHits", botCache::getHits);
+			metrics.registerGauge("botCacheMisses", botCache::getMisses);
+			metrics.registerGauge("botCacheBytes", botCache::getBytes);
+		}
+		try {
+			metricsName = new ObjectName("de.crd.rubybots:type=Metrics,name=engine-" + ENGINE_COUNT.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, metricsName);
+		} catch (JMException e) {
+			LOGGER.log(Level.FINE, "Metrics could not be registered with JMX: " + e.getMessage());
+			metricsName = null;
+		}
 	}
 
 	public void prepareEngine() throws ScriptException {
 		System.out.print("Preparing engine.");
 		preparingEngine = true;
 		backgroundExecutor.execute(new ProgressTask());
-		jruby = new ScriptEngineManager().getEngineByName("jruby");
-		if (jruby == null) {
-			throw new IllegalStateException("JRuby not found.");
+		if (engineConfig.getParallelism() > 1 || engineConfig.hasTimeBudget()) {
+			prepareLanes(engineConfig.getParallelism());
+		} else {
+			runtimes.add(runtimePool.acquire()); // init engine
 		}
-		jruby.eval("puts \".\""); // init engine
 		preparingEngine = false;
-		LOGGER.log(Level.FINE, "Done preparing engine.");
+		LOG.log(() -> "Done preparing engine. " + runtimePool);
+	}
+
+	/**
+	 * Each lane is a single thread owning one runtime. Runtimes the pool has
+	 * not warmed up yet are created concurrently on their lanes.
+	 */
+	private void prepareLanes(int parallelism) throws ScriptException {
+		List<Future<ScriptRuntime>> preparedRuntimes = new ArrayList<>();
+		for (int i = 0; i < parallelism; i++) {
+			ExecutorService lane = createLane(i);
+			lanes.add(lane);
+			preparedRuntimes.add(lane.submit(runtimePool::acquire));
+		}
+		for (Future<ScriptRuntime> preparedRuntime : preparedRuntimes) {
+			try {
+				runtimes.add(await(preparedRuntime));
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof ScriptException) {
+					throw (ScriptException) e.getCause();
+				}
+				throw new IllegalStateException("Preparing runtime failed.", e.getCause());
+			}
+		}
+	}
+
+	private static ExecutorService createLane(int laneNumber) {
+		return Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "RubyBots-lane-" + laneNumber);
+			thread.setDaemon(true);
+			return thread;
+		});
 	}
 
 	public void loadBotsFromClasspath(List<BotClasspathConfig> botConfigs) {
-		LOGGER.log(Level.FINE, "Loading bots from classpath.");
+		LOG.log("Loading bots from classpath.");
 		int i = getNumberOfBots();
 		for (BotClasspathConfig botConfig : botConfigs) {
-			LOGGER.log(Level.FINE, "Loading bot nr " + i + " from " + botConfig);
+			if (LOG.isEnabled()) {
+				LOG.log("Loading bot nr " + i + " from " + botConfig);
+			}
 			try (InputStreamReader isr = new InputStreamReader(
 					RubyBots.class.getResourceAsStream("/" + botConfig.getClasspathReference()));
 					BufferedReader br = new BufferedReader(isr);) {
 				String bot = br.lines().collect(Collectors.joining(System.getProperty("line.separator")));
-				LOGGER.log(Level.FINE, "Found bot:\n" + bot);
-				bots.add(bot);
+				if (LOG.isEnabled()) {
+					LOG.log("Found bot:\n" + bot);
+				}
+				compileBot(botConfig, bot);
+			} catch (IllegalStateException e) {
+				throw e;
 			} catch (Exception e) {
 				throw new IllegalStateException("Loading bot from classpath failed.");
 			}
 			i++;
 		}
-		LOGGER.log(Level.FINE, "Done loading bots from classpath.");
+		LOG.log("Done loading bots from classpath.");
+	}
+
+	/**
+	 * A bot is compiled on the runtime that is going to execute it. Pinning
+	 * bots to runtimes also keeps their stored data inside one runtime.
+	 */
+	private void compileBot(ScriptBotConfig botConfig, String bot) {
+		Map<Integer, ScriptException> errors = compileBots(Collections.singletonList(botConfig),
+				Collections.singletonList(bot));
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException(
+					"Bot " + botConfig.getName() + " could not be compiled: " + errors.get(0).getMessage(), errors.get(0));
+		}
+	}
+
+	/**
+	 * Every distinct script is compiled once on each lane of the bots running
+	 * it, bots with the same source share it. The lanes compile their share of
+	 * the scripts concurrently.
+	 * 
+	 * @return the error by index of every bot that could not be compiled
+	 */
+	private Map<Integer, ScriptException> compileBots(List<? extends ScriptBotConfig> botConfigs, List<String> bots) {
+		Map<Integer, ScriptException> errors = new HashMap<>();
+		int[] scriptIdOfBot = new int[bots.size()];
+		int[] botIdOfBot = new int[bots.size()];
+		// the first bot of every script that is not compiled yet
+		Map<Integer, Integer> newScripts = new LinkedHashMap<>();
+		Map<Integer, List<Integer>> scriptIdsByLane = new HashMap<>();
+		synchronized (this) {
+			Map<String, Integer> newScriptIds = new HashMap<>();
+			for (int i = 0; i < bots.size(); i++) {
+				String language = botConfigs.get(i).getScriptLanguage();
+				String scriptKey = getScriptKey(language, bots.get(i));
+				Integer scriptId = compiledScripts.get(scriptKey);
+				if (scriptId == null) {
+					scriptId = newScriptIds.get(scriptKey);
+				}
+				if (scriptId == null) {
+					try {
+						getRuntimes(language); // creates them for a new language
+					} catch (ScriptException e) {
+						errors.put(i, e);
+						continue;
+					}
+					scriptId = nextScriptId++;
+					newScriptIds.put(scriptKey, scriptId);
+					newScripts.put(scriptId, i);
+					// known before compiling, so a lane replaced meanwhile compiles it as well
+					sources.put(scriptId, bots.get(i));
+					languages.put(scriptId, language);
+				}
+				scriptIdOfBot[i] = scriptId;
+				// a reloaded bot keeps its id
+				Integer botId = botIds.get(botConfigs.get(i));
+				botIdOfBot[i] = botId != null ? botId : nextBotId++;
+				int laneNumber = getLaneNumber(botIdOfBot[i], runtimes.size());
+				if (lanesOfScripts.computeIfAbsent(scriptId, id -> ConcurrentHashMap.newKeySet()).add(laneNumber)) {
+					scriptIdsByLane.computeIfAbsent(laneNumber, lane -> new ArrayList<>()).add(scriptId);
+				}
+			}
+		}
+		Map<Integer, ScriptException> failedScripts = compileOnLanes(scriptIdsByLane);
+		for (Map.Entry<Integer, Integer> newScript : newScripts.entrySet()) {
+			int scriptId = newScript.getKey();
+			if (failedScripts.containsKey(scriptId)) {
+				sources.remove(scriptId);
+				languages.remove(scriptId);
+				lanesOfScripts.remove(scriptId);
+				continue;
+			}
+			ScriptBotConfig botConfig = botConfigs.get(newScript.getValue());
+			compiledScripts.put(getScriptKey(botConfig.getScriptLanguage(), bots.get(newScript.getValue())),
+					scriptId);
+		}
+		for (int i = 0; i < bots.size(); i++) {
+			if (errors.containsKey(i)) {
+				continue;
+			}
+			ScriptException error = failedScripts.get(scriptIdOfBot[i]);
+			if (error != null) {
+				errors.put(i, error);
+			} else {
+				if (botIds.put(botConfigs.get(i), botIdOfBot[i]) == null) {
+					metrics.registerBot(botIdOfBot[i], botConfigs.get(i).getName(),
+							botConfigs.get(i).getScriptLanguage());
+				}
+				scriptIds.put(botConfigs.get(i), scriptIdOfBot[i]);
+			}
+		}
+		return errors;
+	}
+
+	private static String getScriptKey(String language, String bot) {
+		return language + '\n' + bot;
+	}
+
+	/**
+	 * Runtimes are confined to their lanes, bots may be running on them.
+	 * 
+	 * @return the error by script id of every script that did not compile
+	 */
+	private Map<Integer, ScriptException> compileOnLanes(Map<Integer, List<Integer>> scriptIdsByLane) {
+		Map<Integer, ScriptException> failedScripts = new ConcurrentHashMap<>();
+		if (lanes.isEmpty()) {
+			for (Map.Entry<Integer, List<Integer>> scriptIdsOfLane : scriptIdsByLane.entrySet()) {
+				for (int scriptId : scriptIdsOfLane.getValue()) {
+					ScriptRuntime runtime = getRuntime(languages.get(scriptId), scriptIdsOfLane.getKey());
+					synchronized (runtime) {
+						compile(scriptId, runtime, failedScripts);
+					}
+				}
+			}
+			return failedScripts;
+		}
+		List<Future<?>> pendingLanes = new ArrayList<>();
+		for (Map.Entry<Integer, List<Integer>> scriptIdsOfLane : scriptIdsByLane.entrySet()) {
+			int laneNumber = scriptIdsOfLane.getKey();
+			pendingLanes.add(lanes.get(laneNumber).submit(() -> {
+				for (int scriptId : scriptIdsOfLane.getValue()) {
+					compile(scriptId, getRuntime(languages.get(scriptId), laneNumber), failedScripts);
+				}
+			}));
+		}
+		for (Future<?> pendingLane : pendingLanes) {
+			try {
+				await(pendingLane);
+			} catch (CancellationException e) {
+				// the lane was replaced, which compiled its bots on the new one
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Compiling bots failed.", e.getCause());
+			}
+		}
+		return failedScripts;
+	}
+
+	private void compile(int scriptId, ScriptRuntime runtime, Map<Integer, ScriptException> failedScripts) {
+		try {
+			runtime.compile(scriptId, sources.get(scriptId), botCache);
+		} catch (ScriptException e) {
+			failedScripts.put(scriptId, e);
+		} catch (RuntimeException e) {
+			// JRuby reports syntax errors unchecked
+			ScriptException error = new ScriptException(String.valueOf(e));
+			error.initCause(e);
+			failedScripts.put(scriptId, error);
+		}
+	}
+
+	/**
+	 * Compiles the bot's file again while the engine is running. Battles
+	 * started afterwards run the new version, running battles keep the one
+	 * they started with.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the bot has not been loaded or the new version does not
+	 *             compile, the previous version stays in place then
+	 */
+	public void reloadBot(BotFileConfig botConfig) throws IOException {
+		Integer previousScriptId = scriptIds.get(botConfig);
+		if (previousScriptId == null) {
+			throw new IllegalStateException("Bot " + botConfig.getName() + " has not been loaded.");
+		}
+		compileBot(botConfig, readBot(botConfig.getBotFile()));
+		synchronized (pinnedScripts) {
+			// bots with the same source may still use it
+			if (!scriptIds.containsValue(previousScriptId)) {
+				if (pinnedScripts.containsKey(previousScriptId)) {
+					supersededScripts.add(previousScriptId);
+				} else {
+					releaseScript(previousScriptId);
+				}
+			}
+		}
+		LOG.log(() -> "Reloaded bot " + botConfig.getName());
+	}
+
+	/**
+	 * NON-API
+	 * 
+	 * Called when a battle has ended. Scripts superseded by a reload are
+	 * released with the last battle running them.
+	 */
+	public void unpinScripts(List<Bot> bots) {
+		synchronized (pinnedScripts) {
+			for (Bot bot : bots) {
+				int scriptId = bot.getPinnedScriptId();
+				if (scriptId < 0 || pinnedScripts.merge(scriptId, -1, Integer::sum) > 0) {
+					continue;
+				}
+				pinnedScripts.remove(scriptId);
+				// a bot loaded meanwhile may have picked it up again
+				if (supersededScripts.remove(scriptId) && !scriptIds.containsValue(scriptId)) {
+					releaseScript(scriptId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Frees the compiled script and its source. The runtimes forget it on
+	 * their lanes.
+	 */
+	private void releaseScript(int scriptId) {
+		String language = languages.remove(scriptId);
+		String source = sources.remove(scriptId);
+		compiledScripts.remove(getScriptKey(language, source), scriptId);
+		for (int laneNumber : lanesOfScripts.remove(scriptId)) {
+			ScriptRuntime runtime = getRuntime(language, laneNumber);
+			if (lanes.isEmpty()) {
+				synchronized (runtime) {
+					runtime.remove(scriptId);
+				}
+				continue;
+			}
+			try {
+				lanes.get(laneNumber).execute(() -> runtime.remove(scriptId));
+			} catch (RejectedExecutionException e) {
+				// the lane was abandoned, its replacement does not compile the script
+			}
+		}
+		LOG.log(() -> "Released script " + scriptId);
+	}
+
+	/**
+	 * Java bots are executed on the lanes like scripts, so they are watched
+	 * the same way.
+	 */
+	public synchronized void loadBotsFromJava(List<BotJavaConfig> botConfigs) {
+		for (BotJavaConfig botConfig : botConfigs) {
+			LOG.log(() -> "Loading Java bot " + botConfig);
+			int scriptId = nextScriptId++;
+			int botId = nextBotId++;
+			strategies.put(scriptId, botConfig.getStrategy());
+			metrics.registerBot(botId, botConfig.getName(), JAVA_BACKEND);
+			botIds.put(botConfig, botId);
+			scriptIds.put(botConfig, scriptId);
+		}
+	}
+
+	/**
+	 * Ruby bots run on JRuby, other languages on their JSR-223 engine. Their
+	 * runtimes are created with the first bot of the language.
+	 */
+	private List<ScriptRuntime> getRuntimes(String language) throws ScriptException {
+		if (ScriptRuntime.RUBY.equals(language)) {
+			return runtimes;
+		}
+		List<ScriptRuntime> runtimesOfLanguage = otherRuntimes.get(language);
+		if (runtimesOfLanguage == null) {
+			runtimesOfLanguage = new CopyOnWriteArrayList<>();
+			for (int i = 0; i < runtimes.size(); i++) {
+				runtimesOfLanguage.add(ScriptRuntime.create(language));
+			}
+			otherRuntimes.put(language, runtimesOfLanguage);
+			metrics.registerGauge("runtimes." + language, runtimesOfLanguage::size);
+			LOG.log(() -> "Created runtimes for ." + language + " bots: " + otherRuntimes.get(language));
+		}
+		return runtimesOfLanguage;
+	}
+
+	private ScriptRuntime getRuntime(String language, int laneNumber) {
+		List<ScriptRuntime> runtimesOfLanguage = ScriptRuntime.RUBY.equals(language) ? runtimes
+				: otherRuntimes.get(language);
+		return runtimesOfLanguage.get(laneNumber);
+	}
+
+	/**
+	 * Without lanes there is a single runtime.
+	 */
+	private static int getLaneNumber(int botId, int numberOfLanes) {
+		return botId % numberOfLanes;
+	}
+
+	private int getBotId(Context context) {
+		Integer botId = botIds.get(Context.extractBotConfig(context));
+		if (botId == null) {
+			throw new IllegalStateException(
+					"Bot " + Context.extractBotConfig(context).getName() + " has not been loaded.");
+		}
+		return botId;
+	}
+
+	/**
+	 * The version of a bot is pinned with its first turn, so a reload does
+	 * not change it in the middle of a battle.
+	 */
+	private int getScriptId(Context context) {
+		int pinnedScriptId = Context.extractPinnedScriptId(context);
+		if (pinnedScriptId >= 0) {
+			return pinnedScriptId;
+		}
+		synchronized (pinnedScripts) {
+			Integer scriptId = scriptIds.get(Context.extractBotConfig(context));
+			if (scriptId == null) {
+				throw new IllegalStateException(
+						"Bot " + Context.extractBotConfig(context).getName() + " has not been loaded.");
+			}
+			pinnedScripts.merge(scriptId, 1, Integer::sum);
+			return Context.pinScriptId(context, scriptId);
+		}
 	}
 
 	public int getNumberOfBots() {
-		return bots.size();
+		return scriptIds.size();
+	}
+
+	public boolean isParallel() {
+		return lanes.size() > 1;
 	}
 
 	public void callBot(Context context) throws ScriptException {
-		LOGGER.log(Level.FINE, "Calling bot " + context.getBotNumber());
-		Bindings bindings = new SimpleBindings();
-		bindings.put("context", context);
-		jruby.eval(bots.get(context.getBotNumber()), bindings);
-		LOGGER.log(Level.FINE, "Bot call " + context + " returned.");
+		BotCallResult result = callBots(Collections.singletonList(context)).get(0);
+		if (!result.isSuccessful()) {
+			throw result.getError();
+		}
+	}
+
+	/**
+	 * Calls all given bots and returns the results in the same order. In
+	 * parallel mode the bots are evaluated concurrently on their lanes. Several
+	 * battles may call bots at the same time. Bots running over their time
+	 * budget are stopped and their turn is forfeited.
+	 */
+	public List<BotCallResult> callBots(List<Context> contexts) {
+		List<BotCallResult> results = new ArrayList<>(contexts.size());
+		if (lanes.isEmpty()) {
+			for (Context context : contexts) {
+				results.add(executeBot(context, new Turn(null, -1)));
+			}
+			return results;
+		}
+		List<Turn> turns = new ArrayList<>(contexts.size());
+		for (Context context : contexts) {
+			turns.add(submitTurn(context, getLaneNumber(getBotId(context), lanes.size())));
+		}
+		for (int i = 0; i < contexts.size(); i++) {
+			results.add(awaitTurn(contexts.get(i), turns.get(i)));
+		}
+		return results;
+	}
+
+	private Turn submitTurn(Context context, int laneNumber) {
+		Turn turn = new Turn(lanes.get(laneNumber), laneNumber);
+		try {
+			turn.pendingResult = turn.lane.submit(() -> executeBot(context, turn));
+			return turn;
+		} catch (RejectedExecutionException e) {
+			return resubmitTurn(context, laneNumber);
+		}
+	}
+
+	/**
+	 * For turns that were queued on a lane when it was abandoned. Waits until
+	 * the lane's replacement is ready.
+	 */
+	private synchronized Turn resubmitTurn(Context context, int laneNumber) {
+		Turn turn = new Turn(lanes.get(laneNumber), laneNumber);
+		turn.pendingResult = turn.lane.submit(() -> executeBot(context, turn));
+		return turn;
+	}
+
+	/**
+	 * Only time the bot is actually running counts against its budget, not the
+	 * time its turn waits for the lane.
+	 */
+	private BotCallResult awaitTurn(Context context, Turn turn) {
+		Future<BotCallResult> pendingResult = turn.pendingResult;
+		try {
+			if (!engineConfig.hasTimeBudget()) {
+				return pendingResult.get();
+			}
+			long wallBudgetNanos = TimeUnit.MILLISECONDS.toNanos(engineConfig.getTurnTimeoutMillis());
+			long cpuBudgetNanos = TimeUnit.MILLISECONDS.toNanos(engineConfig.getCpuBudgetMillis());
+			while (!turn.isOverBudget(wallBudgetNanos, cpuBudgetNanos)) {
+				try {
+					return pendingResult.get(BUDGET_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// check again
+				}
+			}
+			if (LOG.isEnabled(Context.extractTrace(context))) {
+				LOG.log(Context.extractTrace(context),
+						"Stopping bot " + context.getBotNumber() + ", it ran over its time budget.");
+			}
+			turn.stop();
+			try {
+				return pendingResult.get(STOP_GRACE_PERIOD, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				replaceLane(turn);
+				return turn.forfeit(context);
+			}
+		} catch (CancellationException e) {
+			if (LOG.isEnabled(Context.extractTrace(context))) {
+				LOG.log(Context.extractTrace(context),
+						"Lane of bot " + context.getBotNumber() + " was replaced, calling it there.");
+			}
+			return awaitTurn(context, resubmitTurn(context, turn.laneNumber));
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Bot call failed.", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the engine.");
+		}
+	}
+
+	/**
+	 * Last resort for a bot that does not even react to being stopped. Its
+	 * lane is abandoned together with the runtime. The bots of the lane are
+	 * compiled on a fresh runtime, the turns queued on it are cancelled and
+	 * submitted again by the threads waiting for them.
+	 */
+	private synchronized void replaceLane(Turn turn) {
+		if (lanes.get(turn.laneNumber) != turn.lane) {
+			return; // already replaced
+		}
+		LOGGER.log(Level.SEVERE, "Lane " + turn.laneNumber + " does not respond. Replacing it.");
+		lanesReplaced.incrementAndGet();
+		for (Runnable queued : turn.lane.shutdownNow()) {
+			((Future<?>) queued).cancel(false);
+		}
+		ExecutorService lane = createLane(turn.laneNumber);
+		// the stuck bot may be using any of the lane's runtimes
+		Future<Map<String, ScriptRuntime>> preparedRuntimes = lane.submit(() -> {
+			Map<String, ScriptRuntime> replacements = new HashMap<>();
+			replacements.put(ScriptRuntime.RUBY, runtimePool.acquire());
+			for (String language : otherRuntimes.keySet()) {
+				replacements.put(language, ScriptRuntime.create(language));
+			}
+			for (Map.Entry<Integer, Set<Integer>> lanesOfScript : lanesOfScripts.entrySet()) {
+				int scriptId = lanesOfScript.getKey();
+				if (lanesOfScript.getValue().contains(turn.laneNumber)) {
+					replacements.get(languages.get(scriptId)).compile(scriptId, sources.get(scriptId), botCache);
+				}
+			}
+			return replacements;
+		});
+		try {
+			Map<String, ScriptRuntime> replacements = await(preparedRuntimes);
+			runtimes.set(turn.laneNumber, replacements.get(ScriptRuntime.RUBY));
+			for (Map.Entry<String, List<ScriptRuntime>> runtimesOfLanguage : otherRuntimes.entrySet()) {
+				runtimesOfLanguage.getValue().set(turn.laneNumber, replacements.get(runtimesOfLanguage.getKey()));
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Replacing lane failed.", e.getCause());
+		}
+		lanes.set(turn.laneNumber, lane);
+	}
+
+	private BotCallResult executeBot(Context context, Turn turn) {
+		if (LOG.isEnabled(Context.extractTrace(context))) {
+			LOG.log(Context.extractTrace(context), "Calling bot " + context.getBotNumber());
+		}
+		int botId = getBotId(context);
+		int scriptId = getScriptId(context);
+		BotStrategy strategy = strategies.get(scriptId);
+		ScriptRuntime runtime = strategy == null
+				? getRuntime(languages.get(scriptId), getLaneNumber(botId, runtimes.size()))
+				: null;
+		ScriptException error = null;
+		boolean stopped;
+		turn.begin(runtime);
+		try {
+			if (strategy != null) {
+				play(strategy, context);
+			} else {
+				call(runtime, scriptId, context);
+			}
+		} catch (ScriptException e) {
+			error = e;
+		} finally {
+			// even for errors ending the battle, the lane stays usable
+			stopped = turn.finish();
+			metrics.recordBotCall(botId, turn.getWallNanos(), turn.getAllocatedBytes(), stopped);
+			if (stopped) {
+				if (runtime != null) {
+					runtime.discardPendingStop();
+				} else {
+					Thread.interrupted();
+				}
+			}
+		}
+		if (stopped) {
+			return turn.forfeit(context);
+		}
+		if (LOG.isEnabled(Context.extractTrace(context))) {
+			LOG.log(Context.extractTrace(context), "Bot call of bot " + context.getBotNumber() + " returned.");
+		}
+		return new BotCallResult(context, error, turn.getWallNanos(), turn.getCpuNanos(), false);
+	}
+
+	/**
+	 * Failures of a Java bot are reported like script errors. Errors a bot
+	 * can cause on its own count as failures, running out of memory still
+	 * ends the battle.
+	 */
+	private static void play(BotStrategy strategy, Context context) throws ScriptException {
+		try {
+			strategy.play(context);
+		} catch (RuntimeException | StackOverflowError | AssertionError | LinkageError e) {
+			throw toScriptError(context, e);
+		}
+	}
+
+	/**
+	 * JSR-223 engines other than JRuby throw unchecked exceptions for broken
+	 * bots as well, they are reported like script errors.
+	 */
+	private void call(ScriptRuntime runtime, int scriptId, Context context) throws ScriptException {
+		try {
+			if (!lanes.isEmpty()) {
+				runtime.call(scriptId, context); // confined to its lane
+			} else {
+				synchronized (runtime) {
+					runtime.call(scriptId, context);
+				}
+			}
+		} catch (RuntimeException | StackOverflowError | AssertionError | LinkageError e) {
+			throw toScriptError(context, e);
+		}
+	}
+
+	private static ScriptException toScriptError(Context context, Throwable cause) {
+		ScriptException error = new ScriptException("Bot " + context.getBotNumber() + " failed: " + cause);
+		error.initCause(cause);
+		return error;
+	}
+
+	private static <T> T await(Future<T> future) throws ExecutionException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the engine.");
+		}
+	}
+
+	/**
+	 * One bot call as seen by the executing lane and the thread watching its
+	 * budget. A turn is only stopped while the bot is still running, so the
+	 * next bot on the lane is never hit.
+	 */
+	private static class Turn {
+
+		private final ExecutorService lane;
+		private final int laneNumber;
+		// set by the submitting thread before anyone waits for it
+		private Future<BotCallResult> pendingResult;
+		private Thread thread;
+		private ScriptRuntime runtime;
+		private long startNanos;
+		private long startCpuNanos;
+		private long endNanos;
+		private long endCpuNanos;
+		private long startAllocatedBytes;
+		private long endAllocatedBytes;
+		private boolean finished;
+		private boolean stopped;
+
+		Turn(ExecutorService lane, int laneNumber) {
+			this.lane = lane;
+			this.laneNumber = laneNumber;
+		}
+
+		/**
+		 * @param runtime
+		 *            null for a Java bot
+		 */
+		synchronized void begin(ScriptRuntime runtime) {
+			this.thread = Thread.currentThread();
+			this.runtime = runtime;
+			this.startNanos = System.nanoTime();
+			this.startCpuNanos = getThreadCpuNanos();
+			this.startAllocatedBytes = getThreadAllocatedBytes();
+		}
+
+		/**
+		 * @return whether the turn has been stopped
+		 */
+		synchronized boolean finish() {
+			endNanos = System.nanoTime();
+			endCpuNanos = getThreadCpuNanos();
+			endAllocatedBytes = getThreadAllocatedBytes();
+			finished = true;
+			return stopped;
+		}
+
+		synchronized boolean isOverBudget(long wallBudgetNanos, long cpuBudgetNanos) {
+			if (thread == null || finished) {
+				return false;
+			}
+			return (wallBudgetNanos > 0 && getWallNanos() > wallBudgetNanos)
+					|| (cpuBudgetNanos > 0 && getCpuNanos() > cpuBudgetNanos);
+		}
+
+		synchronized void stop() {
+			if (thread != null && !finished) {
+				stopped = true;
+				if (runtime != null) {
+					runtime.stop(thread);
+				} else {
+					thread.interrupt(); // a Java bot
+				}
+			}
+		}
+
+		synchronized long getWallNanos() {
+			return (finished ? endNanos : System.nanoTime()) - startNanos;
+		}
+
+		synchronized long getCpuNanos() {
+			return (finished ? endCpuNanos : getThreadCpuNanos()) - startCpuNanos;
+		}
+
+		/**
+		 * Only known once the turn is finished, -1 if the JVM cannot measure
+		 * it.
+		 */
+		synchronized long getAllocatedBytes() {
+			return startAllocatedBytes < 0 ? -1L : endAllocatedBytes - startAllocatedBytes;
+		}
+
+		BotCallResult forfeit(Context context) {
+			return new BotCallResult(context,
+					new ScriptException("Bot " + context.getBotNumber() + " exceeded its time budget."),
+					getWallNanos(), getCpuNanos(), true);
+		}
+
+		private long getThreadCpuNanos() {
+			if (!THREAD_MX_BEAN.isThreadCpuTimeSupported()) {
+				return 0L;
+			}
+			return Math.max(0L, THREAD_MX_BEAN.getThreadCpuTime(thread.getId()));
+		}
+
+		private long getThreadAllocatedBytes() {
+			if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+				return -1L;
+			}
+			return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(thread.getId());
+		}
 	}
 
 	private class ProgressTask implements Runnable {
@@ -96,43 +874,128 @@ public class Engine {
 				}
 			}
 			System.out.println("\n\n");
-			// engine prepared, start showing battleStats
-			while (!Thread.currentThread().isInterrupted()) {
-				try {
-					BattleStats battleStatsUpdate = battleStatsUpdateQueue.take();
-					battleStatsUpdateListener.onBattleStatsUpdate(battleStatsUpdate);
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-				}
-			}
 		}
 	}
 
 	public void shutdown() {
-		LOGGER.log(Level.FINE, "Shutting down engine.");
+		LOG.log("Shutting down engine.");
 		backgroundExecutor.shutdownNow();
+		battleStatsPublisher.shutdown();
+		for (ExecutorService lane : lanes) {
+			lane.shutdownNow();
+		}
+		try {
+			for (ExecutorService lane : lanes) {
+				lane.awaitTermination(LANE_TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (ScriptRuntime runtime : runtimes) {
+			runtimePool.release(runtime);
+		}
+		runtimes.clear();
+		// not pooled, they go with the engine
+		otherRuntimes.clear();
+		LOG.log(() -> "Released runtimes. " + runtimePool);
+		if (engineConfig.getRuntimePool() == null) {
+			runtimePool.shutdown();
+		}
+		if (metricsName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+			} catch (JMException e) {
+				LOGGER.log(Level.FINE, "Metrics could not be unregistered: " + e.getMessage());
+			}
+			metricsName = null;
+		}
 	}
 
-	public void loadBotsFromFiles(List<BotFileConfig> botConfigs) {
-		LOGGER.log(Level.FINE, "Loading bots from files.");
-		int i = getNumberOfBots();
-		for (BotFileConfig botConfig : botConfigs) {
-			LOGGER.log(Level.FINE, "Loading bot nr " + i + " from " + botConfig);
-			try (FileInputStream fis = new FileInputStream(botConfig.getBotFile());
-					InputStreamReader isr = new InputStreamReader(fis);
-					BufferedReader br = new BufferedReader(isr);) {
-				String bot = br.lines().collect(Collectors.joining(System.getProperty("line.separator")));
-				LOGGER.log(Level.FINE, "Found bot:\n" + bot);
-				bots.add(bot);
-			} catch (Exception e) {
-				e.printStackTrace();
+	/**
+	 * Reads the files in parallel and compiles every distinct script once.
+	 * The summary is logged as well.
+	 * 
+	 * @throws IllegalStateException
+	 *             listing every bot that could not be read or compiled
+	 */
+	public BotLoadSummary loadBotsFromFiles(List<BotFileConfig> botConfigs) {
+		LOG.log("Loading bots from files.");
+		long start = System.nanoTime();
+		String[] bots = new String[botConfigs.size()];
+		long[] sizes = new long[botConfigs.size()];
+		Map<Integer, Exception> errors = new ConcurrentHashMap<>();
+		IntStream.range(0, botConfigs.size()).parallel().forEach(i -> {
+			try {
+				bots[i] = readBot(botConfigs.get(i).getBotFile());
+				sizes[i] = botConfigs.get(i).getBotFile().length();
+			} catch (IOException e) {
+				errors.put(i, e);
+			}
+		});
+		long readNanos = System.nanoTime() - start;
+		List<BotFileConfig> readConfigs = new ArrayList<>();
+		List<String> readBots = new ArrayList<>();
+		List<Integer> indexes = new ArrayList<>();
+		long bytes = 0L;
+		for (int i = 0; i < bots.length; i++) {
+			if (bots[i] != null) {
+				readConfigs.add(botConfigs.get(i));
+				readBots.add(bots[i]);
+				indexes.add(i);
+				bytes += sizes[i];
 			}
-			i++;
 		}
-		LOGGER.log(Level.FINE, "Done loading bots from files.");
+		for (Map.Entry<Integer, ScriptException> error : compileBots(readConfigs, readBots).entrySet()) {
+			errors.put(indexes.get(error.getKey()), error.getValue());
+		}
+		long compileNanos = System.nanoTime() - start - readNanos;
+		Map<String, String> failures = new TreeMap<>();
+		for (Map.Entry<Integer, Exception> error : errors.entrySet()) {
+			failures.put(botConfigs.get(error.getKey()).getBotFile().getPath(),
+					String.valueOf(error.getValue().getMessage()));
+		}
+		int scripts = (int) IntStream.range(0, readBots.size())
+				.mapToObj(i -> getScriptKey(readConfigs.get(i).getScriptLanguage(), readBots.get(i))).distinct()
+				.count();
+		BotLoadSummary summary = new BotLoadSummary(botConfigs.size(), scripts, bytes, readNanos, compileNanos,
+				failures);
+		LOGGER.log(Level.INFO, summary.toString());
+		if (!failures.isEmpty()) {
+			throw new IllegalStateException(failures.size() + " bots could not be loaded: " + failures);
+		}
+		return summary;
+	}
+
+	/**
+	 * Small files are read into a buffer, large ones are mapped. Ruby reads its
+	 * sources as UTF-8.
+	 */
+	private static String readBot(File botFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(botFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer buffer;
+			if (size >= MAP_THRESHOLD) {
+				buffer = channel.map(MapMode.READ_ONLY, 0L, size);
+			} else {
+				buffer = ByteBuffer.allocate((int) size);
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+					// until the file is read
+				}
+				buffer.flip();
+			}
+			return StandardCharsets.UTF_8.decode(buffer).toString();
+		}
+	}
+
+	public EngineConfig getEngineConfig() {
+		return engineConfig;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
 	}
 
-	public Queue<BattleStats> getBattleStatsUpdateQueue() {
-		return battleStatsUpdateQueue;
+	public BattleStatsPublisher getBattleStatsPublisher() {
+		return battleStatsPublisher;
 	}
 }
@@ -0,0 +1,167 @@
+package de.crd.rubybots.engine;
+
+import java.io.File;
+
+import de.crd.rubybots.config.Constants;
+
+/**
+ * Settings that have to be known before the engine is prepared.
+ */
+public class EngineConfig {
+
+	private CompileMode compileMode = CompileMode.JIT;
+	private int parallelism = 1;
+	private RuntimePool runtimePool;
+	private long turnTimeoutMillis;
+	private long cpuBudgetMillis;
+	private ActionLimitPolicy actionLimitPolicy = ActionLimitPolicy.IGNORE;
+	private File botCacheDirectory;
+	private long botCacheMaxBytes = 64L * 1024 * 1024;
+
+	public CompileMode getCompileMode() {
+		return compileMode;
+	}
+
+	public void setCompileMode(CompileMode compileMode) {
+		this.compileMode = compileMode;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Number of isolated runtimes evaluating the bots of a round concurrently.
+	 * 1 evaluates all bots sequentially on the calling thread.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1.");
+		}
+		this.parallelism = parallelism;
+	}
+
+	public RuntimePool getRuntimePool() {
+		return runtimePool;
+	}
+
+	/**
+	 * Engines sharing a pool take warmed-up runtimes from it and hand them back
+	 * on shutdown. The pool's compile mode overrides the one configured here.
+	 * Without a pool every engine starts its own runtimes.
+	 */
+	public void setRuntimePool(RuntimePool runtimePool) {
+		this.runtimePool = runtimePool;
+	}
+
+	public long getTurnTimeoutMillis() {
+		return turnTimeoutMillis;
+	}
+
+	/**
+	 * Wall-clock time a bot may take for one turn. Time spent waiting for its
+	 * lane does not count. 0 means unlimited.
+	 */
+	public void setTurnTimeoutMillis(long turnTimeoutMillis) {
+		if (turnTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Turn timeout must not be negative.");
+		}
+		this.turnTimeoutMillis = turnTimeoutMillis;
+	}
+
+	public long getCpuBudgetMillis() {
+		return cpuBudgetMillis;
+	}
+
+	/**
+	 * CPU time a bot may use for one turn. Ignored if the JVM cannot measure
+	 * thread CPU time. 0 means unlimited.
+	 */
+	public void setCpuBudgetMillis(long cpuBudgetMillis) {
+		if (cpuBudgetMillis < 0) {
+			throw new IllegalArgumentException("CPU budget must not be negative.");
+		}
+		this.cpuBudgetMillis = cpuBudgetMillis;
+	}
+
+	public ActionLimitPolicy getActionLimitPolicy() {
+		return actionLimitPolicy;
+	}
+
+	public void setActionLimitPolicy(ActionLimitPolicy actionLimitPolicy) {
+		this.actionLimitPolicy = actionLimitPolicy;
+	}
+
+	public File getBotCacheDirectory() {
+		return botCacheDirectory;
+	}
+
+	/**
+	 * Ruby bots are cached there in compiled form, so a restarted engine skips
+	 * parsing them. Null, the default, disables the cache. Not used with
+	 * {@link CompileMode#FORCE}.
+	 */
+	public void setBotCacheDirectory(File botCacheDirectory) {
+		this.botCacheDirectory = botCacheDirectory;
+	}
+
+	public long getBotCacheMaxBytes() {
+		return botCacheMaxBytes;
+	}
+
+	/**
+	 * The least recently used bots are deleted beyond this size. Default is 64
+	 * MB.
+	 */
+	public void setBotCacheMaxBytes(long botCacheMaxBytes) {
+		if (botCacheMaxBytes < 0) {
+			throw new IllegalArgumentException("Bot cache size must not be negative.");
+		}
+		this.botCacheMaxBytes = botCacheMaxBytes;
+	}
+
+	/**
+	 * Bots with a time budget are always executed on lanes, so the calling
+	 * thread can watch them.
+	 */
+	public boolean hasTimeBudget() {
+		return turnTimeoutMillis > 0 || cpuBudgetMillis > 0;
+	}
+
+	@Override
+	public String toString() {
+		return "EngineConfig [compileMode=" + compileMode + ", parallelism=" + parallelism + ", runtimePool="
+				+ runtimePool + ", turnTimeoutMillis=" + turnTimeoutMillis + ", cpuBudgetMillis=" + cpuBudgetMillis
+				+ ", actionLimitPolicy=" + actionLimitPolicy + ", botCacheDirectory=" + botCacheDirectory
+				+ ", botCacheMaxBytes=" + botCacheMaxBytes + "]";
+	}
+
+	/**
+	 * What happens to a bot queuing more than
+	 * {@link Constants#MAX_ACTIONS_PER_BOT} actions in one round. The actions
+	 * over the limit are never executed. THROW raises an error in the bot's
+	 * script, DISQUALIFY removes the bot from the battlefield before the
+	 * actions of the round are applied.
+	 */
+	public enum ActionLimitPolicy {
+		IGNORE, THROW, DISQUALIFY;
+	}
+
+	/**
+	 * Maps to JRuby's compile modes. FORCE compiles every bot to JVM bytecode
+	 * right away instead of waiting for it to become hot.
+	 */
+	public enum CompileMode {
+		OFF("off"), JIT("jit"), FORCE("force");
+
+		private final String jrubyName;
+
+		private CompileMode(String jrubyName) {
+			this.jrubyName = jrubyName;
+		}
+
+		public String getJRubyName() {
+			return jrubyName;
+		}
+	}
+}
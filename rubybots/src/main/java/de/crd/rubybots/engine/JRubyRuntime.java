@@ -0,0 +1,301 @@
+package de.crd.rubybots.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+import org.jruby.Ruby;
+import org.jruby.RubyThread;
+import org.jruby.ast.RootNode;
+import org.jruby.embed.PropertyName;
+import org.jruby.exceptions.RaiseException;
+import org.jruby.ir.IRBuilder;
+import org.jruby.ir.IRManager;
+import org.jruby.ir.IRScope;
+import org.jruby.ir.IRScriptBody;
+import org.jruby.ir.persistence.IRReader;
+import org.jruby.ir.persistence.IRReaderStream;
+import org.jruby.ir.persistence.IRWriter;
+import org.jruby.ir.persistence.IRWriterStream;
+import org.jruby.javasupport.JavaUtil;
+import org.jruby.runtime.Constants;
+import org.jruby.util.ByteList;
+
+import de.crd.rubybots.battle.Context;
+import de.crd.rubybots.engine.EngineConfig.CompileMode;
+
+/**
+ * The default backend for Ruby bots. Every instance is an isolated JRuby
+ * runtime.
+ */
+class JRubyRuntime extends ScriptRuntime {
+
+	private static final Logger LOGGER = Logger.getLogger(JRubyRuntime.class.getSimpleName());
+	// persisted IR is only readable by the same JRuby build
+	private static final String IR_VERSION = "jruby-ir-" + Constants.VERSION + "-" + Constants.REVISION;
+	private static final String SCRIPT_NAME = "<script>";
+	// the JSR-223 factory reads its settings from the system properties
+	private static final Object PROPERTY_LOCK = new Object();
+	private static final String RUNTIME_SCRIPT = "require 'jruby'; JRuby.runtime";
+	// makes rand, shuffle and sample reproducible, Random.new stays unseeded
+	private static final String PROLOGUE_SCRIPT = "srand($context.getSeed)";
+	private static final String WARM_UP_SCRIPT = "(1..100).map { |i| i.to_s * 2 }.select { |s| s.size > 2 }.size";
+	// remembers what belongs to a fresh runtime, everything else is removed on reset
+	private static final String BASELINE_SCRIPT = "$rubybots_baseline = [global_variables, Object.constants, "
+			+ "Object.private_instance_methods(false), TOPLEVEL_BINDING.receiver.instance_variables]";
+	// methods compare equal only while neither redefined nor aliased, some are listed but undefined
+	private static final String CORE_SNAPSHOT = "[m.ancestors, m.singleton_class.ancestors, "
+			+ "(m.instance_methods(false) + m.private_instance_methods(false))"
+			+ ".map { |n| (m.instance_method(n) rescue n) }, "
+			+ "m.singleton_methods(false).map { |n| (m.method(n) rescue n) }]";
+	// changes to the core classes cannot be undone, only detected
+	private static final String CORE_BASELINE_SCRIPT = "verbose, $VERBOSE = $VERBOSE, nil\n"
+			+ "$rubybots_core = Object.constants.reject { |c| Object.autoload?(c) }.map { |c| Object.const_get(c) }"
+			+ ".select { |m| m.is_a?(Module) && m.respond_to?(:ancestors) }.uniq"
+			+ ".map { |m| [m, " + CORE_SNAPSHOT + "] }\n"
+			+ "$VERBOSE = verbose";
+	private static final String CORE_CHANGED_SCRIPT = "$rubybots_core.any? { |m, snapshot| " + CORE_SNAPSHOT
+			+ " != snapshot }";
+	private static final String RESET_SCRIPT = "baseline = $rubybots_baseline\n"
+			+ "(global_variables - baseline[0] - [:$rubybots_baseline, :$rubybots_core])"
+			+ ".each { |g| eval(\"#{g} = nil\") }\n"
+			+ "(Object.constants - baseline[1]).each { |c| Object.send(:remove_const, c) }\n"
+			+ "(Object.private_instance_methods(false) - baseline[2]).each { |m| Object.send(:remove_method, m) }\n"
+			+ "main = TOPLEVEL_BINDING.receiver\n"
+			+ "(main.instance_variables - baseline[3]).each { |v| main.send(:remove_instance_variable, v) }";
+	private final ScriptEngine jruby;
+	private final CompileMode compileMode;
+	private final Map<Integer, CompiledScript> bots = new HashMap<>();
+	private volatile Ruby ruby;
+	private volatile CompiledScript prologue;
+
+	static {
+		// a terminated runtime closes the jars its class loader read from, with the
+		// JVM's jar cache that includes the one all other runtimes load from
+		try {
+			new URL("jar:file:rubybots.jar!/").openConnection().setDefaultUseCaches(false);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	JRubyRuntime(CompileMode compileMode) {
+		this.compileMode = compileMode;
+		synchronized (PROPERTY_LOCK) {
+			System.setProperty(PropertyName.COMPILEMODE.toString(), compileMode.getJRubyName());
+			// every runtime has to be isolated instead of sharing JRuby's singleton
+			System.setProperty(PropertyName.LOCALCONTEXT_SCOPE.toString(), "singlethread");
+			// the expensive part happens on first use, outside of the lock
+			System.setProperty(PropertyName.LAZINESS.toString(), "true");
+			jruby = new ScriptEngineManager().getEngineByName("jruby");
+		}
+		if (jruby == null) {
+			throw new IllegalStateException("JRuby not found.");
+		}
+		if (!(jruby instanceof Compilable)) {
+			throw new IllegalStateException("JRuby does not support compilation.");
+		}
+	}
+
+	@Override
+	String getLanguage() {
+		return RUBY;
+	}
+
+	@Override
+	void warmUp() throws ScriptException {
+		ruby = (Ruby) jruby.eval(RUNTIME_SCRIPT);
+		jruby.eval(WARM_UP_SCRIPT);
+		jruby.eval(BASELINE_SCRIPT);
+		jruby.eval(CORE_BASELINE_SCRIPT);
+		prologue = ((Compilable) jruby).compile(PROLOGUE_SCRIPT);
+	}
+
+	/**
+	 * Forgets all compiled bots and whatever they defined globally: globals,
+	 * constants, top-level methods and instance variables of main. Changes to
+	 * the core classes cannot be undone, a runtime with reopened or
+	 * monkey-patched core classes fails to reset instead.
+	 */
+	@Override
+	void reset() throws ScriptException {
+		bots.clear();
+		jruby.eval(RESET_SCRIPT);
+		if (Boolean.TRUE.equals(jruby.eval(CORE_CHANGED_SCRIPT))) {
+			throw new ScriptException("Core classes were changed by a bot.");
+		}
+	}
+
+	/**
+	 * Bots are parsed and compiled only once. Every call replays the compiled
+	 * script with fresh bindings.
+	 */
+	@Override
+	void compile(int scriptId, String bot) throws ScriptException {
+		bots.put(scriptId, ((Compilable) jruby).compile(bot));
+	}
+
+	/**
+	 * Bots are cached as JRuby's intermediate representation, the same form
+	 * jrubyc persists. A bot loaded from the cache skips parsing and building
+	 * the IR and is interpreted until JRuby's JIT picks it up. FORCE
+	 * compiles to bytecode right away, which cannot be persisted, so the
+	 * cache is not used then.
+	 */
+	@Override
+	void compile(int scriptId, String bot, BotCache cache) throws ScriptException {
+		if (cache == null || compileMode == CompileMode.FORCE) {
+			compile(scriptId, bot);
+			return;
+		}
+		String key = BotCache.getKey(IR_VERSION, bot);
+		IRScope scope = null;
+		byte[] persisted = cache.get(key);
+		if (persisted != null) {
+			try {
+				scope = loadIR(persisted);
+			} catch (IOException | RuntimeException e) {
+				LOGGER.log(Level.FINE, "Cached bot " + key + " is unusable: " + e);
+				cache.remove(key);
+			}
+		}
+		if (scope == null) {
+			persisted = persistIR(bot);
+			cache.put(key, persisted);
+			try {
+				scope = loadIR(persisted);
+			} catch (IOException e) {
+				throw new IllegalStateException("Bot could not be read back from its IR.", e);
+			}
+		}
+		bots.put(scriptId, new PersistedBot(scope));
+	}
+
+	@Override
+	void remove(int scriptId) {
+		bots.remove(scriptId);
+	}
+
+	/**
+	 * Bytes of Ruby source parsed so far, bots are parsed when they are
+	 * compiled, not when they are called.
+	 */
+	int getParsedBytes() {
+		return ruby.getParser().getTotalBytes();
+	}
+
+	private byte[] persistIR(String bot) throws ScriptException {
+		try {
+			RootNode node = (RootNode) ruby.parseFile(SCRIPT_NAME,
+					new ByteArrayInputStream(bot.getBytes(StandardCharsets.UTF_8)), null);
+			// builds the closures right away instead of on first use, as jrubyc does
+			IRManager manager = new IRManager(ruby.getInstanceConfig());
+			manager.setDryRun(true);
+			IRScriptBody scope = (IRScriptBody) IRBuilder.buildRoot(manager, node).getScope();
+			scope.setTopLevelBindingScope(node.getScope());
+			ByteArrayOutputStream persisted = new ByteArrayOutputStream();
+			IRWriter.persist(new IRWriterStream(persisted), scope);
+			return persisted.toByteArray();
+		} catch (RaiseException | IOException e) {
+			ScriptException error = new ScriptException(e.getMessage());
+			error.initCause(e);
+			throw error;
+		}
+	}
+
+	private IRScope loadIR(byte[] persisted) throws IOException {
+		IRManager manager = ruby.getIRManager();
+		return IRReader.load(manager, new IRReaderStream(manager, new ByteArrayInputStream(persisted),
+				new ByteList(SCRIPT_NAME.getBytes(StandardCharsets.UTF_8))));
+	}
+
+	@Override
+	void call(int scriptId, Context context) throws ScriptException {
+		Bindings bindings = new SimpleBindings();
+		bindings.put("context", context);
+		prologue.eval(bindings);
+		// JRuby removes the variables of the bindings after an evaluation
+		bindings = new SimpleBindings();
+		bindings.put("context", context);
+		bots.get(scriptId).eval(bindings);
+	}
+
+	/**
+	 * Kills the Ruby code the given thread is executing on this runtime. Unlike
+	 * a Java interrupt this also ends busy loops and cannot be rescued by the
+	 * bot. The thread itself stays usable.
+	 */
+	@Override
+	void stop(Thread thread) {
+		RubyThread rubyThread = ruby.getThreadService().getRubyThreadMap().get(thread);
+		if (rubyThread != null) {
+			rubyThread.kill();
+		}
+	}
+
+	/**
+	 * A stop requested just before the bot returned would hit the next bot on
+	 * this thread, so it is consumed here.
+	 */
+	@Override
+	void discardPendingStop() {
+		RubyThread rubyThread = ruby.getThreadService().getRubyThreadMap().get(Thread.currentThread());
+		if (rubyThread != null) {
+			try {
+				rubyThread.pollThreadEvents();
+			} catch (RuntimeException e) {
+				// the pending kill
+			}
+		}
+		Thread.interrupted();
+	}
+
+	/**
+	 * Runs a bot loaded from its IR the way JRuby runs compiled scripts, with
+	 * the context as <code>$context</code>.
+	 */
+	private class PersistedBot extends CompiledScript {
+
+		private final IRScope scope;
+
+		PersistedBot(IRScope scope) {
+			this.scope = scope;
+		}
+
+		@Override
+		public Object eval(ScriptContext scriptContext) throws ScriptException {
+			ruby.getGlobalVariables().set("$context",
+					JavaUtil.convertJavaToUsableRubyObject(ruby, scriptContext.getAttribute("context")));
+			try {
+				return ruby.runInterpreter(ruby.getCurrentContext(), scope, ruby.getTopSelf());
+			} catch (RuntimeException e) {
+				ScriptException error = new ScriptException(String.valueOf(e.getMessage()));
+				error.initCause(e);
+				throw error;
+			} finally {
+				ruby.getGlobalVariables().set("$context", ruby.getNil());
+			}
+		}
+
+		@Override
+		public ScriptEngine getEngine() {
+			return jruby;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package de.crd.rubybots.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import de.crd.rubybots.battle.Context;
+
+/**
+ * Bots in any language that has a JSR-223 engine on the classpath, e.g.
+ * GraalJS or Luaj. The engine is found by the file extension of the bots.
+ * Bots get the context as the variable <code>context</code>. Unlike with
+ * JRuby their random numbers are not seeded and a bot running over its time
+ * budget is only interrupted.
+ */
+class Jsr223Runtime extends ScriptRuntime {
+
+	private final String language;
+	private final ScriptEngine engine;
+	// compiled once if the engine can, otherwise evaluated from source
+	private final Map<Integer, CompiledScript> compiledBots = new HashMap<>();
+	private final Map<Integer, String> bots = new HashMap<>();
+
+	Jsr223Runtime(String language) throws ScriptException {
+		this.language = language;
+		this.engine = new ScriptEngineManager().getEngineByExtension(language);
+		if (engine == null) {
+			throw new ScriptException("No script engine found for ." + language + " bots.");
+		}
+	}
+
+	@Override
+	String getLanguage() {
+		return language;
+	}
+
+	/**
+	 * Engines set up their interpreter with the first script, so an empty
+	 * one is run the way bots are. Any language accepts it.
+	 */
+	@Override
+	void warmUp() throws ScriptException {
+		compile(-1, "");
+		call(-1, null);
+		reset();
+	}
+
+	@Override
+	void reset() throws ScriptException {
+		compiledBots.clear();
+		bots.clear();
+		engine.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+	}
+
+	@Override
+	void compile(int scriptId, String bot) throws ScriptException {
+		if (engine instanceof Compilable) {
+			compiledBots.put(scriptId, ((Compilable) engine).compile(bot));
+		} else {
+			bots.put(scriptId, bot);
+		}
+	}
+
+	@Override
+	void remove(int scriptId) {
+		compiledBots.remove(scriptId);
+		bots.remove(scriptId);
+	}
+
+	@Override
+	void call(int scriptId, Context context) throws ScriptException {
+		Bindings bindings = engine.createBindings();
+		bindings.put("context", context);
+		CompiledScript compiledBot = compiledBots.get(scriptId);
+		if (compiledBot != null) {
+			compiledBot.eval(bindings);
+		} else {
+			engine.eval(bots.get(scriptId), bindings);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Jsr223Runtime [language=" + language + ", engine=" + engine.getFactory().getEngineName() + "]";
+	}
+}
@@ -0,0 +1,151 @@
+package de.crd.rubybots.engine;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.script.ScriptException;
+
+import de.crd.rubybots.engine.EngineConfig.CompileMode;
+
+/**
+ * Keeps a number of warmed-up runtimes ready so engines don't have to wait for
+ * JRuby to start. Runtimes are created in the background, concurrently, and
+ * are reset when they are handed back. One pool can be shared by any number of
+ * engines via {@link EngineConfig#setRuntimePool(RuntimePool)}.
+ */
+public class RuntimePool {
+
+	private static final Logger LOGGER = Logger.getLogger(RuntimePool.class.getSimpleName());
+	private final int size;
+	private final CompileMode compileMode;
+	private final BlockingQueue<ScriptRuntime> idleRuntimes = new LinkedBlockingQueue<>();
+	private final ExecutorService backgroundExecutor;
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+	private final AtomicInteger created = new AtomicInteger();
+	private final AtomicInteger discarded = new AtomicInteger();
+	private volatile boolean shutdown;
+
+	/**
+	 * @param size
+	 *            number of idle runtimes to keep ready, 0 disables warming in
+	 *            the background
+	 */
+	public RuntimePool(int size, CompileMode compileMode) {
+		this.size = size;
+		this.compileMode = compileMode;
+		this.backgroundExecutor = Executors.newFixedThreadPool(Math.max(1, size), runnable -> {
+			Thread thread = new Thread(runnable, "RubyBots-pool");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (int i = 0; i < size; i++) {
+			replenish();
+		}
+	}
+
+	/**
+	 * Hands out an idle runtime or creates one on the calling thread if none is
+	 * ready.
+	 */
+	ScriptRuntime acquire() throws ScriptException {
+		ScriptRuntime runtime = idleRuntimes.poll();
+		if (runtime != null) {
+			hits.incrementAndGet();
+			replenish();
+			return runtime;
+		}
+		misses.incrementAndGet();
+		LOGGER.log(Level.FINE, "No idle runtime available. " + this);
+		return createRuntime();
+	}
+
+	/**
+	 * The runtime is reset in the background and kept if the pool is not full.
+	 */
+	void release(ScriptRuntime runtime) {
+		if (shutdown) {
+			discarded.incrementAndGet();
+			return;
+		}
+		backgroundExecutor.execute(() -> {
+			try {
+				runtime.reset();
+			} catch (ScriptException e) {
+				LOGGER.log(Level.FINE, "Runtime could not be reset: " + e.getMessage());
+				discarded.incrementAndGet();
+				return;
+			}
+			if (idleRuntimes.size() + pending.get() < size) {
+				idleRuntimes.offer(runtime);
+			} else {
+				discarded.incrementAndGet();
+			}
+		});
+	}
+
+	private void replenish() {
+		if (shutdown || idleRuntimes.size() + pending.get() >= size) {
+			return;
+		}
+		pending.incrementAndGet();
+		backgroundExecutor.execute(() -> {
+			try {
+				idleRuntimes.offer(createRuntime());
+			} catch (ScriptException | IllegalStateException e) {
+				LOGGER.log(Level.SEVERE, "Runtime could not be created: " + e.getMessage());
+			} finally {
+				pending.decrementAndGet();
+			}
+		});
+	}
+
+	private ScriptRuntime createRuntime() throws ScriptException {
+		ScriptRuntime runtime = new JRubyRuntime(compileMode);
+		runtime.warmUp();
+		created.incrementAndGet();
+		return runtime;
+	}
+
+	public CompileMode getCompileMode() {
+		return compileMode;
+	}
+
+	public int getHits() {
+		return hits.get();
+	}
+
+	public int getMisses() {
+		return misses.get();
+	}
+
+	public int getCreated() {
+		return created.get();
+	}
+
+	public int getDiscarded() {
+		return discarded.get();
+	}
+
+	public int getIdle() {
+		return idleRuntimes.size();
+	}
+
+	public void shutdown() {
+		shutdown = true;
+		backgroundExecutor.shutdownNow();
+		idleRuntimes.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "RuntimePool [size=" + size + ", idle=" + getIdle() + ", hits=" + getHits() + ", misses="
+				+ getMisses() + ", created=" + getCreated() + ", discarded=" + getDiscarded() + "]";
+	}
+}
@@ -0,0 +1,73 @@
+package de.crd.rubybots.engine;
+
+import javax.script.ScriptException;
+
+import de.crd.rubybots.battle.Context;
+
+/**
+ * One isolated runtime of a script language together with the bots compiled
+ * on it. A runtime must not be used by more than one thread at a time.
+ */
+abstract class ScriptRuntime {
+
+	static final String RUBY = "rb";
+
+	/**
+	 * The file extension of the language's bots.
+	 */
+	abstract String getLanguage();
+
+	abstract void warmUp() throws ScriptException;
+
+	/**
+	 * Forgets all compiled bots.
+	 */
+	abstract void reset() throws ScriptException;
+
+	abstract void compile(int scriptId, String bot) throws ScriptException;
+
+	/**
+	 * Forgets a compiled bot.
+	 */
+	abstract void remove(int scriptId);
+
+	/**
+	 * Runtimes that cannot use the cache compile as usual.
+	 * 
+	 * @param cache
+	 *            null if there is none
+	 */
+	void compile(int scriptId, String bot, BotCache cache) throws ScriptException {
+		compile(scriptId, bot);
+	}
+
+	abstract void call(int scriptId, Context context) throws ScriptException;
+
+	/**
+	 * Stops the bot the given thread is executing on this runtime. By default
+	 * the thread is only interrupted.
+	 */
+	void stop(Thread thread) {
+		thread.interrupt();
+	}
+
+	/**
+	 * A stop requested just before the bot returned would hit the next bot on
+	 * this thread, so it is consumed here.
+	 */
+	void discardPendingStop() {
+		Thread.interrupted();
+	}
+
+	/**
+	 * A runtime for any language with a JSR-223 engine on the classpath.
+	 * 
+	 * @param language
+	 *            the file extension of its bots
+	 */
+	static ScriptRuntime create(String language) throws ScriptException {
+		ScriptRuntime runtime = new Jsr223Runtime(language);
+		runtime.warmUp();
+		return runtime;
+	}
+}
@@ -0,0 +1,27 @@
+package de.crd.rubybots.logging;
+
+/**
+ * Switches the debug output of a single battle on or off while it is
+ * running, independent of the configured log levels.
+ */
+public class BattleTrace {
+
+	private final String prefix;
+	private volatile boolean enabled;
+
+	public BattleTrace(String battleId) {
+		this.prefix = "[" + battleId + "] ";
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	String getPrefix() {
+		return prefix;
+	}
+}
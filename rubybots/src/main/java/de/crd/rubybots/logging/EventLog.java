@@ -0,0 +1,61 @@
+package de.crd.rubybots.logging;
+
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Debug logging for the battle and engine hot paths. Nothing is built unless
+ * it is going to be logged: hot paths check {@link #isEnabled(BattleTrace)}
+ * before building a message, everything else passes a supplier. Events of a
+ * traced battle are logged at INFO, all others at FINE.
+ */
+public class EventLog {
+
+	private final Logger logger;
+	// otherwise every record would name this class as its source
+	private final String sourceClass;
+
+	private EventLog(Class<?> type) {
+		this.logger = Logger.getLogger(type.getSimpleName());
+		this.sourceClass = type.getName();
+	}
+
+	public static EventLog getLog(Class<?> type) {
+		return new EventLog(type);
+	}
+
+	public boolean isEnabled() {
+		return logger.isLoggable(Level.FINE);
+	}
+
+	/**
+	 * @param trace
+	 *            may be null
+	 */
+	public boolean isEnabled(BattleTrace trace) {
+		return (trace != null && trace.isEnabled()) || logger.isLoggable(Level.FINE);
+	}
+
+	public void log(String message) {
+		logger.logp(Level.FINE, sourceClass, null, message);
+	}
+
+	public void log(Supplier<String> message) {
+		logger.logp(Level.FINE, sourceClass, null, message);
+	}
+
+	public void log(BattleTrace trace, String message) {
+		if (trace != null && trace.isEnabled()) {
+			logger.logp(Level.INFO, sourceClass, null, trace.getPrefix() + message);
+		} else {
+			logger.logp(Level.FINE, sourceClass, null, message);
+		}
+	}
+
+	public void log(BattleTrace trace, Supplier<String> message) {
+		if (isEnabled(trace)) {
+			log(trace, message.get());
+		}
+	}
+}
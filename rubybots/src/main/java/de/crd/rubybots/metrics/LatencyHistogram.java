@@ -0,0 +1,96 @@
+package de.crd.rubybots.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size histogram in the style of HdrHistogram: every power of two is
+ * split into 16 linear buckets, so any value is reported within about 6%.
+ * Recording is lock-free and does not allocate.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final int BUCKETS = SUB_BUCKETS + (63 - (SUB_BUCKET_BITS - 1)) * HALF_SUB_BUCKETS;
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Negative values are counted as 0.
+	 */
+	public void record(long value) {
+		value = Math.max(0L, value);
+		counts.incrementAndGet(getIndex(value));
+		totalCount.incrementAndGet();
+		sum.addAndGet(value);
+		long currentMax;
+		while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+			// another thread recorded concurrently
+		}
+	}
+
+	static int getIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+	}
+
+	/**
+	 * @return the highest value that falls into the same bucket
+	 */
+	static long getHighestEquivalentValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		long top = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return ((top + 1) << shift) - 1;
+	}
+
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getMean() {
+		long count = getCount();
+		return count > 0 ? sum.get() / count : 0L;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return 0 if nothing has been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = getCount();
+		if (count == 0) {
+			return 0L;
+		}
+		long countAtPercentile = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= countAtPercentile) {
+				return Math.min(getHighestEquivalentValue(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram [count=" + getCount() + ", mean=" + getMean() + ", p50="
+				+ getValueAtPercentile(50.0) + ", p99=" + getValueAtPercentile(99.0) + ", p999="
+				+ getValueAtPercentile(99.9) + ", max=" + getMax() + "]";
+	}
+}
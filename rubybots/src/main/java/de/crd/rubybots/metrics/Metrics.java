@@ -0,0 +1,287 @@
+package de.crd.rubybots.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.battle.ActionEvent;
+import de.crd.rubybots.battle.ActionEvent.Outcome;
+
+/**
+ * Counters and histograms of one engine. Everything called while a battle is
+ * running only increments preallocated counters, so metrics can stay on all
+ * the time. Gauges are read when the metrics are.
+ */
+public class Metrics implements MetricsMXBean {
+
+	private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+	private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+	private static final long RATE_WINDOW_NANOS = 10000000000L;
+	private final LongAdder rounds = new LongAdder();
+	private final LongAdder timedOutBotCalls = new LongAdder();
+	private final LongAdder rejectedActions = new LongAdder();
+	private final LongAdder bytesAllocatedByBots = new LongAdder();
+	private final LongAdder[] actionsApplied = createAdders(ActionType.values().length);
+	private final LongAdder[] actionOutcomes = createAdders(Outcome.values().length);
+	private final LatencyHistogram botCallLatency = new LatencyHistogram();
+	// indexed by bot id, grows while bots are loaded
+	private volatile LatencyHistogram[] botCallLatencyByBot = new LatencyHistogram[0];
+	private volatile String[] botNames = new String[0];
+	// indexed by bot id as well, the bots of a backend share one histogram
+	private volatile LatencyHistogram[] botCallLatencyOfBackend = new LatencyHistogram[0];
+	private final Map<String, LatencyHistogram> botCallLatencyByBackend = new ConcurrentHashMap<>();
+	private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+	private final long start = System.nanoTime();
+	// the rate is taken from the sample that is one to two windows old, so
+	// reading it changes nothing for other readers
+	private long previousSampleNanos = start;
+	private long previousSampleRounds;
+	private long sampleNanos = start;
+	private long sampleRounds;
+
+	public Metrics() {
+		registerGauge("gcCount", () -> sumGarbageCollectors(true));
+		registerGauge("gcTimeMillis", () -> sumGarbageCollectors(false));
+		registerGauge("heapUsedBytes", () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+	}
+
+	private static LongAdder[] createAdders(int size) {
+		LongAdder[] adders = new LongAdder[size];
+		for (int i = 0; i < size; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	private static long sumGarbageCollectors(boolean count) {
+		long sum = 0;
+		for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			sum += Math.max(0L, count ? garbageCollector.getCollectionCount() : garbageCollector.getCollectionTime());
+		}
+		return sum;
+	}
+
+	public void registerGauge(String name, LongSupplier gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * Called when a bot is loaded, not while battles are running.
+	 * 
+	 * @param backend
+	 *            what executes the bot, e.g. the language of a script
+	 */
+	public synchronized void registerBot(int botId, String name, String backend) {
+		String[] names = Arrays.copyOf(botNames, Math.max(botNames.length, botId + 1));
+		names[botId] = name;
+		botNames = names;
+		LatencyHistogram[] ofBackend = Arrays.copyOf(botCallLatencyOfBackend,
+				Math.max(botCallLatencyOfBackend.length, botId + 1));
+		ofBackend[botId] = botCallLatencyByBackend.computeIfAbsent(backend, key -> new LatencyHistogram());
+		botCallLatencyOfBackend = ofBackend;
+		if (botId >= botCallLatencyByBot.length) {
+			LatencyHistogram[] histograms = Arrays.copyOf(botCallLatencyByBot, botId + 1);
+			for (int i = botCallLatencyByBot.length; i <= botId; i++) {
+				histograms[i] = new LatencyHistogram();
+			}
+			botCallLatencyByBot = histograms;
+		}
+	}
+
+	/**
+	 * @param allocatedBytes
+	 *            -1 if the JVM cannot measure it
+	 */
+	public void recordBotCall(int botId, long wallNanos, long allocatedBytes, boolean timedOut) {
+		botCallLatency.record(wallNanos);
+		botCallLatencyByBot[botId].record(wallNanos);
+		botCallLatencyOfBackend[botId].record(wallNanos);
+		if (allocatedBytes > 0) {
+			bytesAllocatedByBots.add(allocatedBytes);
+		}
+		if (timedOut) {
+			timedOutBotCalls.increment();
+		}
+	}
+
+	public void recordAction(ActionEvent event) {
+		actionsApplied[event.getActionType().ordinal()].increment();
+		actionOutcomes[event.getOutcome().ordinal()].increment();
+	}
+
+	public void recordRejectedActions(int actions) {
+		rejectedActions.add(actions);
+	}
+
+	public void recordRound() {
+		rounds.increment();
+	}
+
+	@Override
+	public long getRounds() {
+		return rounds.sum();
+	}
+
+	@Override
+	public double getRoundsPerSecond() {
+		return getRoundsPerSecond(System.nanoTime());
+	}
+
+	synchronized double getRoundsPerSecond(long now) {
+		long currentRounds = getRounds();
+		if (now - sampleNanos >= RATE_WINDOW_NANOS) {
+			previousSampleNanos = sampleNanos;
+			previousSampleRounds = sampleRounds;
+			sampleNanos = now;
+			sampleRounds = currentRounds;
+		}
+		return (currentRounds - previousSampleRounds) * 1e9 / Math.max(1L, now - previousSampleNanos);
+	}
+
+	@Override
+	public long getBotCalls() {
+		return botCallLatency.getCount();
+	}
+
+	@Override
+	public long getTimedOutBotCalls() {
+		return timedOutBotCalls.sum();
+	}
+
+	@Override
+	public long getRejectedActions() {
+		return rejectedActions.sum();
+	}
+
+	@Override
+	public long getBytesAllocatedByBots() {
+		return bytesAllocatedByBots.sum();
+	}
+
+	@Override
+	public Map<String, Long> getBotCallLatency() {
+		Map<String, Long> latency = new LinkedHashMap<>();
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			latency.put(PERCENTILE_NAMES[i], botCallLatency.getValueAtPercentile(PERCENTILES[i]));
+		}
+		latency.put("max", botCallLatency.getMax());
+		latency.put("mean", botCallLatency.getMean());
+		return latency;
+	}
+
+	/**
+	 * Bots with the same name are told apart by their id. Ids of bots that
+	 * failed to load are left out.
+	 */
+	@Override
+	public Map<String, Long> getBotCallLatencyP99() {
+		Map<String, Long> latency = new TreeMap<>();
+		LatencyHistogram[] histograms = botCallLatencyByBot;
+		String[] names = botNames;
+		for (int i = 0; i < histograms.length; i++) {
+			if (names[i] != null) {
+				latency.put(i + ":" + names[i], histograms[i].getValueAtPercentile(99.0));
+			}
+		}
+		return latency;
+	}
+
+	@Override
+	public Map<String, Long> getBotCallsByBackend() {
+		Map<String, Long> calls = new TreeMap<>();
+		for (Entry<String, LatencyHistogram> histogram : botCallLatencyByBackend.entrySet()) {
+			calls.put(histogram.getKey(), histogram.getValue().getCount());
+		}
+		return calls;
+	}
+
+	@Override
+	public Map<String, Long> getBotCallLatencyP99ByBackend() {
+		Map<String, Long> latency = new TreeMap<>();
+		for (Entry<String, LatencyHistogram> histogram : botCallLatencyByBackend.entrySet()) {
+			latency.put(histogram.getKey(), histogram.getValue().getValueAtPercentile(99.0));
+		}
+		return latency;
+	}
+
+	public LatencyHistogram getBotCallLatencyHistogram(int botId) {
+		return botCallLatencyByBot[botId];
+	}
+
+	@Override
+	public Map<String, Long> getActionsApplied() {
+		Map<String, Long> actions = new LinkedHashMap<>();
+		for (ActionType actionType : ActionType.values()) {
+			actions.put(actionType.name(), actionsApplied[actionType.ordinal()].sum());
+		}
+		return actions;
+	}
+
+	@Override
+	public Map<String, Long> getActionOutcomes() {
+		Map<String, Long> outcomes = new LinkedHashMap<>();
+		for (Outcome outcome : Outcome.values()) {
+			outcomes.put(outcome.name(), actionOutcomes[outcome.ordinal()].sum());
+		}
+		return outcomes;
+	}
+
+	@Override
+	public Map<String, Long> getGauges() {
+		Map<String, Long> values = new TreeMap<>();
+		for (Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+			values.put(gauge.getKey(), gauge.getValue().getAsLong());
+		}
+		return values;
+	}
+
+	@Override
+	public void dump(String file) throws IOException {
+		dump(new File(file));
+	}
+
+	/**
+	 * Writes all metrics as <code>name=value</code> lines.
+	 */
+	public void dump(File file) throws IOException {
+		try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+			writer.println("uptimeMillis=" + (System.nanoTime() - start) / 1000000L);
+			writer.println("rounds=" + getRounds());
+			writer.println("botCalls=" + getBotCalls());
+			writer.println("timedOutBotCalls=" + getTimedOutBotCalls());
+			writer.println("rejectedActions=" + getRejectedActions());
+			writer.println("bytesAllocatedByBots=" + getBytesAllocatedByBots());
+			print(writer, "botCallLatencyNanos.", getBotCallLatency());
+			print(writer, "botCallLatencyP99Nanos.", getBotCallLatencyP99());
+			print(writer, "botCallsByBackend.", getBotCallsByBackend());
+			print(writer, "botCallLatencyP99NanosByBackend.", getBotCallLatencyP99ByBackend());
+			print(writer, "actionsApplied.", getActionsApplied());
+			print(writer, "actionOutcomes.", getActionOutcomes());
+			print(writer, "", getGauges());
+		}
+	}
+
+	private static void print(PrintWriter writer, String prefix, Map<String, Long> values) {
+		for (Entry<String, Long> value : values.entrySet()) {
+			writer.println(prefix + value.getKey() + "=" + value.getValue());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Metrics [rounds=" + getRounds() + ", botCalls=" + getBotCalls() + ", botCallLatency="
+				+ botCallLatency + ", actionsApplied=" + getActionsApplied() + "]";
+	}
+}
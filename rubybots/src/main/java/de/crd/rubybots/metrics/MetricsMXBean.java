@@ -0,0 +1,62 @@
+package de.crd.rubybots.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The engine's metrics as seen through JMX. Latencies are in nanoseconds.
+ */
+public interface MetricsMXBean {
+
+	long getRounds();
+
+	/**
+	 * Over the last 10 to 20 seconds, or since the start. The same for every
+	 * reader.
+	 */
+	double getRoundsPerSecond();
+
+	long getBotCalls();
+
+	long getTimedOutBotCalls();
+
+	/**
+	 * Actions queued beyond the limit per round.
+	 */
+	long getRejectedActions();
+
+	long getBytesAllocatedByBots();
+
+	/**
+	 * p50, p90, p99, p999, max and mean over all bots.
+	 */
+	Map<String, Long> getBotCallLatency();
+
+	/**
+	 * 99th percentile by bot.
+	 */
+	Map<String, Long> getBotCallLatencyP99();
+
+	/**
+	 * By backend, e.g. <code>rb</code> for Ruby bots and <code>java</code>
+	 * for Java bots.
+	 */
+	Map<String, Long> getBotCallsByBackend();
+
+	/**
+	 * 99th percentile by backend.
+	 */
+	Map<String, Long> getBotCallLatencyP99ByBackend();
+
+	Map<String, Long> getActionsApplied();
+
+	Map<String, Long> getActionOutcomes();
+
+	/**
+	 * Stats queue depth, runtime counts, garbage collection and anything else
+	 * that is read when asked for.
+	 */
+	Map<String, Long> getGauges();
+
+	void dump(String file) throws IOException;
+}
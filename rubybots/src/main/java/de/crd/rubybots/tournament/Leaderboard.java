@@ -0,0 +1,124 @@
+package de.crd.rubybots.tournament;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.crd.rubybots.bots.BotConfig;
+
+/**
+ * Aggregates the battle results of a tournament. Safe to be updated by
+ * concurrently running battles.
+ */
+public class Leaderboard {
+
+	private final Map<BotConfig, Entry> entries = new IdentityHashMap<>();
+	private int numberOfBattles;
+
+	public Leaderboard(List<BotConfig> botConfigs) {
+		for (BotConfig botConfig : botConfigs) {
+			entries.put(botConfig, new Entry(botConfig));
+		}
+	}
+
+	/**
+	 * @param winner
+	 *            null if the battle ended without winner
+	 */
+	public synchronized void record(List<BotConfig> participants, BotConfig winner) {
+		numberOfBattles++;
+		for (BotConfig participant : participants) {
+			Entry entry = entries.get(participant);
+			entry.battles++;
+			if (winner == null) {
+				entry.draws++;
+			} else if (winner == participant) {
+				entry.wins++;
+			}
+		}
+	}
+
+	public synchronized int getWins(BotConfig botConfig) {
+		return entries.get(botConfig).wins;
+	}
+
+	public synchronized int getNumberOfBattles() {
+		return numberOfBattles;
+	}
+
+	/**
+	 * @return copies of the entries, best win rate first
+	 */
+	public synchronized List<Entry> getRanking() {
+		List<Entry> ranking = new ArrayList<>();
+		for (Entry entry : entries.values()) {
+			ranking.add(new Entry(entry));
+		}
+		ranking.sort(Comparator.comparingDouble(Entry::getWinRate).thenComparingInt(Entry::getWins).reversed());
+		return ranking;
+	}
+
+	@Override
+	public String toString() {
+		String lineSeparator = System.getProperty("line.separator");
+		StringBuilder sb = new StringBuilder();
+		sb.append("Battles: ");
+		sb.append(getNumberOfBattles());
+		sb.append(lineSeparator);
+		int rank = 1;
+		for (Entry entry : getRanking()) {
+			sb.append(String.format("%3d. %-30s wins: %5d  draws: %5d  battles: %5d  win rate: %6.2f%%", rank++,
+					entry.getBotConfig().getName(), entry.getWins(), entry.getDraws(), entry.getBattles(),
+					entry.getWinRate() * 100));
+			sb.append(lineSeparator);
+		}
+		return sb.toString();
+	}
+
+	public static class Entry {
+
+		private final BotConfig botConfig;
+		private int battles;
+		private int wins;
+		private int draws;
+
+		private Entry(BotConfig botConfig) {
+			this.botConfig = botConfig;
+		}
+
+		private Entry(Entry toCopy) {
+			this.botConfig = toCopy.botConfig;
+			this.battles = toCopy.battles;
+			this.wins = toCopy.wins;
+			this.draws = toCopy.draws;
+		}
+
+		public BotConfig getBotConfig() {
+			return botConfig;
+		}
+
+		public int getBattles() {
+			return battles;
+		}
+
+		public int getWins() {
+			return wins;
+		}
+
+		public int getDraws() {
+			return draws;
+		}
+
+		public double getWinRate() {
+			return battles == 0 ? 0 : (double) wins / battles;
+		}
+
+		@Override
+		public String toString() {
+			return "Entry [botConfig=" + botConfig.getName() + ", battles=" + battles + ", wins=" + wins + ", draws="
+					+ draws + "]";
+		}
+	}
+}
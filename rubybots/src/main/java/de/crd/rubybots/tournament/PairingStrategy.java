@@ -0,0 +1,40 @@
+package de.crd.rubybots.tournament;
+
+import java.util.List;
+import java.util.Random;
+
+import de.crd.rubybots.bots.BotConfig;
+
+/**
+ * Decides which bots meet in which battle. Strategies keep track of the
+ * battles they already handed out, so every tournament needs a fresh instance.
+ */
+public interface PairingStrategy {
+
+	/**
+	 * @return the battles that can be executed next, all of them concurrently.
+	 *         An empty list ends the tournament.
+	 */
+	List<List<BotConfig>> nextBattles(List<BotConfig> botConfigs, Leaderboard leaderboard);
+
+	/**
+	 * Every combination of bots meets the given number of times.
+	 */
+	static PairingStrategy roundRobin(int botsPerBattle, int repetitions) {
+		return new RoundRobinPairing(botsPerBattle, repetitions);
+	}
+
+	/**
+	 * Bots with similar results meet each other, one Swiss round at a time.
+	 */
+	static PairingStrategy swiss(int botsPerBattle, int rounds, Random random) {
+		return new SwissPairing(botsPerBattle, rounds, random);
+	}
+
+	/**
+	 * The given number of battles between randomly chosen bots.
+	 */
+	static PairingStrategy random(int botsPerBattle, int numberOfBattles, Random random) {
+		return new RandomPairing(botsPerBattle, numberOfBattles, random);
+	}
+}
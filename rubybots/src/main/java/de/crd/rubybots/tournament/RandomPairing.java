@@ -0,0 +1,38 @@
+package de.crd.rubybots.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import de.crd.rubybots.bots.BotConfig;
+
+class RandomPairing implements PairingStrategy {
+
+	private final int botsPerBattle;
+	private final int numberOfBattles;
+	private final Random random;
+	private boolean done;
+
+	RandomPairing(int botsPerBattle, int numberOfBattles, Random random) {
+		this.botsPerBattle = botsPerBattle;
+		this.numberOfBattles = numberOfBattles;
+		this.random = random;
+	}
+
+	@Override
+	public List<List<BotConfig>> nextBattles(List<BotConfig> botConfigs, Leaderboard leaderboard) {
+		if (done) {
+			return Collections.emptyList();
+		}
+		done = true;
+		List<List<BotConfig>> battles = new ArrayList<>();
+		List<BotConfig> candidates = new ArrayList<>(botConfigs);
+		for (int i = 0; i < numberOfBattles; i++) {
+			Collections.shuffle(candidates, random);
+			battles.add(new ArrayList<>(candidates.subList(0, Math.min(botsPerBattle, candidates.size()))));
+		}
+		return battles;
+	}
+
+}
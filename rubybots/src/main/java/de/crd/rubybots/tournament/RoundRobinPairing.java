@@ -0,0 +1,48 @@
+package de.crd.rubybots.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.crd.rubybots.bots.BotConfig;
+
+class RoundRobinPairing implements PairingStrategy {
+
+	private final int botsPerBattle;
+	private final int repetitions;
+	private boolean done;
+
+	RoundRobinPairing(int botsPerBattle, int repetitions) {
+		this.botsPerBattle = botsPerBattle;
+		this.repetitions = repetitions;
+	}
+
+	@Override
+	public List<List<BotConfig>> nextBattles(List<BotConfig> botConfigs, Leaderboard leaderboard) {
+		if (done) {
+			return Collections.emptyList();
+		}
+		done = true;
+		List<List<BotConfig>> combinations = new ArrayList<>();
+		addCombinations(botConfigs, 0, Math.min(botsPerBattle, botConfigs.size()), new ArrayList<>(), combinations);
+		List<List<BotConfig>> battles = new ArrayList<>();
+		for (int i = 0; i < repetitions; i++) {
+			battles.addAll(combinations);
+		}
+		return battles;
+	}
+
+	private static void addCombinations(List<BotConfig> botConfigs, int start, int size, List<BotConfig> current,
+			List<List<BotConfig>> combinations) {
+		if (current.size() == size) {
+			combinations.add(new ArrayList<>(current));
+			return;
+		}
+		for (int i = start; i < botConfigs.size(); i++) {
+			current.add(botConfigs.get(i));
+			addCombinations(botConfigs, i + 1, size, current, combinations);
+			current.remove(current.size() - 1);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package de.crd.rubybots.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import de.crd.rubybots.bots.BotConfig;
+
+class SwissPairing implements PairingStrategy {
+
+	private final int botsPerBattle;
+	private final int rounds;
+	private final Random random;
+	private int currentRound;
+
+	SwissPairing(int botsPerBattle, int rounds, Random random) {
+		this.botsPerBattle = botsPerBattle;
+		this.rounds = rounds;
+		this.random = random;
+	}
+
+	/**
+	 * Sorts the bots by wins (ties are broken randomly) and lets neighbours
+	 * fight each other. A single bot left over sits the round out.
+	 */
+	@Override
+	public List<List<BotConfig>> nextBattles(List<BotConfig> botConfigs, Leaderboard leaderboard) {
+		if (currentRound >= rounds) {
+			return Collections.emptyList();
+		}
+		currentRound++;
+		List<BotConfig> standings = new ArrayList<>(botConfigs);
+		Collections.shuffle(standings, random);
+		standings.sort(Comparator.comparingInt((BotConfig botConfig) -> leaderboard.getWins(botConfig)).reversed());
+		List<List<BotConfig>> battles = new ArrayList<>();
+		for (int i = 0; i < standings.size(); i += botsPerBattle) {
+			List<BotConfig> battle = standings.subList(i, Math.min(i + botsPerBattle, standings.size()));
+			if (battle.size() > 1) {
+				battles.add(new ArrayList<>(battle));
+			}
+		}
+		return battles;
+	}
+
+}
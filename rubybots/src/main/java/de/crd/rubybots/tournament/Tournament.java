@@ -0,0 +1,92 @@
+package de.crd.rubybots.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.crd.rubybots.battle.Battle;
+import de.crd.rubybots.battle.Bot;
+import de.crd.rubybots.battle.RoundPacing;
+import de.crd.rubybots.bots.BotConfig;
+import de.crd.rubybots.engine.Engine;
+
+/**
+ * Executes many battles between the loaded bots on one prepared engine. The
+ * battles handed out by the pairing strategy at once run concurrently.
+ */
+public class Tournament {
+
+	private static final Logger LOGGER = Logger.getLogger(Tournament.class.getSimpleName());
+	private final List<BotConfig> botConfigs;
+	private final PairingStrategy pairingStrategy;
+	private final Integer numberOfRounds;
+	private final int workers;
+	private final SplittableRandom battleSeeds;
+
+	/**
+	 * @param numberOfRounds
+	 *            maximum length of a battle, null for last man standing
+	 */
+	public Tournament(List<BotConfig> botConfigs, PairingStrategy pairingStrategy, Integer numberOfRounds,
+			int workers) {
+		this(botConfigs, pairingStrategy, numberOfRounds, workers, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * The seeds of all battles are derived from the given one. Together with a
+	 * seeded pairing strategy the whole tournament is reproducible.
+	 */
+	public Tournament(List<BotConfig> botConfigs, PairingStrategy pairingStrategy, Integer numberOfRounds,
+			int workers, long seed) {
+		this.botConfigs = botConfigs;
+		this.pairingStrategy = pairingStrategy;
+		this.numberOfRounds = numberOfRounds;
+		this.workers = workers;
+		this.battleSeeds = new SplittableRandom(seed);
+	}
+
+	/**
+	 * NON-API
+	 */
+	public Leaderboard execute(Engine engine) {
+		Leaderboard leaderboard = new Leaderboard(botConfigs);
+		ExecutorService workerPool = Executors.newFixedThreadPool(workers);
+		try {
+			List<List<BotConfig>> battles;
+			while (!(battles = pairingStrategy.nextBattles(botConfigs, leaderboard)).isEmpty()) {
+				LOGGER.log(Level.FINE, "Executing " + battles.size() + " battles.");
+				List<Future<?>> pendingBattles = new ArrayList<>();
+				for (List<BotConfig> participants : battles) {
+					// drawn before submitting, so the order the workers finish in does not matter
+					long seed = battleSeeds.nextLong();
+					pendingBattles
+							.add(workerPool.submit(() -> executeBattle(engine, participants, seed, leaderboard)));
+				}
+				for (Future<?> pendingBattle : pendingBattles) {
+					pendingBattle.get();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Battle failed.", e.getCause());
+		} finally {
+			workerPool.shutdownNow();
+		}
+		return leaderboard;
+	}
+
+	private void executeBattle(Engine engine, List<BotConfig> participants, long seed, Leaderboard leaderboard) {
+		Battle battle = new Battle(numberOfRounds, participants, RoundPacing.headless(), seed);
+		battle.execute(engine);
+		Bot winner = battle.getCurrentBattleStats().getWinner();
+		leaderboard.record(participants, winner != null ? winner.getBotConfig() : null);
+	}
+
+}
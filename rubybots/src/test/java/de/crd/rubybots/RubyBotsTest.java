@@ -0,0 +1,86 @@
+package de.crd.rubybots;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.crd.rubybots.battle.Battle;
+import de.crd.rubybots.battle.RoundPacing;
+import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.bots.BotConfig;
+import de.crd.rubybots.bots.ScriptBotConfig;
+import de.crd.rubybots.engine.BattleStatsPublisher.DeliveryMode;
+import junit.framework.TestCase;
+
+public class RubyBotsTest extends TestCase {
+
+	private static final int ROUNDS = 20;
+	private static final long SEED = 42L;
+
+	private static File createFile(File directory, String name) throws IOException {
+		File file = new File(directory, name);
+		Files.write(file.toPath(), "move".getBytes(StandardCharsets.UTF_8));
+		file.deleteOnExit();
+		return file;
+	}
+
+	public void testDirectoriesPickUpBotsOfEveryRegisteredLanguage() throws IOException {
+		File directory = Files.createTempDirectory("bots").toFile();
+		directory.deleteOnExit();
+		createFile(directory, "a.rb");
+		// registered by the tests' CommandScriptEngine
+		createFile(directory, "b.cmds");
+		createFile(directory, "README.txt");
+		createFile(directory, "c");
+		List<String> languages = new ArrayList<>();
+		for (BotConfig botConfig : RubyBots.getBotFileConfigs(Arrays.asList(directory.getPath()))) {
+			languages.add(((ScriptBotConfig) botConfig).getScriptLanguage());
+		}
+		Collections.sort(languages);
+		assertEquals(Arrays.asList("cmds", "rb"), languages);
+	}
+
+	public void testFilesOfUnknownLanguagesAreRubyBots() throws IOException {
+		File directory = Files.createTempDirectory("bots").toFile();
+		directory.deleteOnExit();
+		File bot = createFile(directory, "mover.txt");
+		List<BotConfig> botConfigs = RubyBots.getBotFileConfigs(Arrays.asList(bot.getPath()));
+		assertEquals(1, botConfigs.size());
+		assertEquals("rb", ((ScriptBotConfig) botConfigs.get(0)).getScriptLanguage());
+	}
+
+	/**
+	 * The default bots, the hunted one fires at random.
+	 *
+	 * @return the field after every action followed by the history
+	 */
+	private static List<Object> play(long seed) {
+		RubyBots rubyBots = new RubyBots(null,
+				Arrays.<BotConfig> asList(new BotClasspathConfig("hunter.rb"), new BotClasspathConfig("hunted.rb")));
+		List<Object> fields = Collections.synchronizedList(new ArrayList<>());
+		Battle battle;
+		try {
+			rubyBots.subscribe(battleStats -> fields.add(battleStats.getBattlefield().getFieldRepresentation()),
+					DeliveryMode.LOSSLESS, 1000, 0L);
+			battle = rubyBots.startBattle(ROUNDS, RoundPacing.headless(), seed);
+			assertNotNull(battle);
+			assertEquals(seed, battle.getSeed());
+		} finally {
+			// delivers everything buffered
+			rubyBots.shutdown();
+		}
+		fields.add(battle.getCurrentBattleStats().getBattlefield().getHistory());
+		return fields;
+	}
+
+	public void testTheSameSeedReplaysTheSameBattle() {
+		List<Object> battle = play(SEED);
+		assertTrue(battle.size() > 1);
+		assertEquals(battle, play(SEED));
+	}
+}
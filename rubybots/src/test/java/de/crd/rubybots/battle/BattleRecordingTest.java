@@ -0,0 +1,95 @@
+package de.crd.rubybots.battle;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.bots.BotConfig;
+import junit.framework.TestCase;
+
+public class BattleRecordingTest extends TestCase {
+
+	private static final int ROUNDS = 20;
+
+	public void testEveryRoundIsRestored() throws Exception {
+		List<BotConfig> botConfigs = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			botConfigs.add(new BotClasspathConfig("bot" + i + ".rb"));
+		}
+		Battle battle = new Battle(ROUNDS, botConfigs, RoundPacing.headless(), 42L);
+		Battlefield battlefield = new Battlefield(battle, new SplittableRandom(42L));
+		List<Battlefield> rounds = new ArrayList<>();
+		rounds.add(new Battlefield(battlefield));
+		SplittableRandom random = new SplittableRandom(7L);
+		File file = File.createTempFile("battle", ".rbb");
+		file.deleteOnExit();
+		try (BattleRecorder recorder = new BattleRecorder(file, 3)) {
+			recorder.start(battle, battlefield);
+			for (int round = 1; round <= ROUNDS; round++) {
+				battlefield.nextRound();
+				for (int bot = 0; bot < battle.getNumberOfBots(); bot++) {
+					ActionType actionType = ActionType.values()[random.nextInt(ActionType.values().length)];
+					int target = random.nextInt(battlefield.getFieldSize());
+					recorder.record(battlefield.applyAction(new Action(bot, target, actionType)));
+				}
+				recorder.endRound(battlefield);
+				rounds.add(new Battlefield(battlefield));
+			}
+		}
+		try (BattleRecording recording = new BattleRecording(file)) {
+			assertEquals(42L, recording.getSeed());
+			assertEquals(ROUNDS, recording.getNumberOfRounds());
+			assertEquals(battle.getNumberOfBots(), recording.getEvents(5).size());
+			for (int round = ROUNDS; round >= 0; round--) {
+				Battlefield expected = rounds.get(round);
+				Battlefield restored = recording.getBattlefield(round);
+				assertEquals(expected.getCurrentRound(), restored.getCurrentRound());
+				assertEquals(expected.getFieldRepresentation(), restored.getFieldRepresentation());
+				assertEquals(expected.getNumberOfMenStanding(), restored.getNumberOfMenStanding());
+				assertEquals(expected.getHistory(), restored.getHistory());
+			}
+		}
+	}
+
+	public void testRecordingLongerThanAChunkKeepsItsLength() throws Exception {
+		List<BotConfig> botConfigs = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			botConfigs.add(new BotClasspathConfig("bot" + i + ".rb"));
+		}
+		int rounds = 20000;
+		Battle battle = new Battle(rounds, botConfigs, RoundPacing.headless(), 42L);
+		Battlefield battlefield = new Battlefield(battle, new SplittableRandom(42L));
+		File file = File.createTempFile("battle", ".rbb");
+		file.deleteOnExit();
+		// a keyframe every round fills several chunks
+		try (BattleRecorder recorder = new BattleRecorder(file, 1)) {
+			recorder.start(battle, battlefield);
+			for (int round = 1; round <= rounds; round++) {
+				battlefield.nextRound();
+				for (int bot = 0; bot < battle.getNumberOfBots(); bot++) {
+					recorder.record(battlefield.applyAction(new Action(bot, null, ActionType.MOVE)));
+				}
+				recorder.endRound(battlefield);
+			}
+		}
+		long length;
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			assertEquals(BattleRecorder.MAGIC, in.readInt());
+			length = in.readLong();
+		}
+		assertTrue(length > 1 << 20);
+		// not truncated, padded to the chunk
+		assertTrue(file.length() >= length);
+		try (BattleRecording recording = new BattleRecording(file)) {
+			assertEquals(rounds, recording.getNumberOfRounds());
+			Battlefield restored = recording.getBattlefield(rounds);
+			assertEquals(battlefield.getFieldRepresentation(), restored.getFieldRepresentation());
+			assertEquals(battlefield.getHistory(), restored.getHistory());
+		}
+	}
+}
@@ -1,11 +1,101 @@
 package de.crd.rubybots.battle;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.bots.BotConfig;
+import de.crd.rubybots.bots.BotJavaConfig;
+import de.crd.rubybots.engine.BattleStatsPublisher.DeliveryMode;
+import de.crd.rubybots.engine.Engine;
 import junit.framework.Assert;
 import junit.framework.TestCase;
 
 public class BattleTest extends TestCase {
 
+	private static final int ROUNDS = 5;
+	private static final long TICK = 50L;
+
 	public void test() {
 		Assert.assertTrue(true);
 	}
+
+	/**
+	 * Two movers, one action each per round.
+	 *
+	 * @param delivered
+	 *            receives the published stats, null to play without a
+	 *            subscriber
+	 */
+	private static Battlefield play(List<BattleStats> delivered) {
+		List<BotJavaConfig> botConfigs = Arrays.asList(
+				new BotJavaConfig(context -> context.getBattlefield().move(), "mover 1"),
+				new BotJavaConfig(context -> context.getBattlefield().move(), "mover 2"));
+		Engine engine = new Engine(null);
+		try {
+			if (delivered != null) {
+				engine.getBattleStatsPublisher().subscribe(delivered::add, DeliveryMode.LOSSLESS, 100, 0L);
+			}
+			engine.loadBotsFromJava(botConfigs);
+			Battle battle = new Battle(ROUNDS, new ArrayList<BotConfig>(botConfigs), RoundPacing.headless(), 3L);
+			battle.execute(engine);
+			assertEquals(2 * ROUNDS, engine.getMetrics().getActionOutcomes().get("MOVED").intValue());
+			return battle.getCurrentBattleStats().getBattlefield();
+		} finally {
+			// delivers everything buffered
+			engine.shutdown();
+		}
+	}
+
+	public void testStatsArePublishedPerActionOnlyWithSubscribers() {
+		List<BattleStats> delivered = Collections.synchronizedList(new ArrayList<>());
+		Battlefield subscribed = play(delivered);
+		assertEquals(2 * ROUNDS, delivered.size());
+		Battlefield last = delivered.get(delivered.size() - 1).getBattlefield();
+		assertEquals(subscribed.getFieldRepresentation(), last.getFieldRepresentation());
+		assertEquals(ROUNDS, last.getHistoryCount(0, ActionType.MOVE));
+		// without subscribers the battle plays out the same
+		Battlefield headless = play(null);
+		assertEquals(subscribed.getFieldRepresentation(), headless.getFieldRepresentation());
+		assertEquals(subscribed.getHistory(), headless.getHistory());
+	}
+
+	/**
+	 * A mover that takes a tick for every round and a bot that sits still.
+	 *
+	 * @return how many milliseconds the battle took
+	 */
+	private static long playSlowly(RoundPacing roundPacing) {
+		List<BotJavaConfig> botConfigs = Arrays.asList(new BotJavaConfig(context -> {
+			try {
+				Thread.sleep(TICK);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			context.getBattlefield().move();
+		}, "slow mover"), new BotJavaConfig(context -> {
+		}, "sitter"));
+		Engine engine = new Engine(null);
+		try {
+			engine.loadBotsFromJava(botConfigs);
+			Battle battle = new Battle(ROUNDS, new ArrayList<BotConfig>(botConfigs), roundPacing, 3L);
+			long start = System.nanoTime();
+			battle.execute(engine);
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	public void testRoundsArePaced() {
+		// a tick for the bot plus one for the pacing
+		assertTrue(playSlowly(RoundPacing.fixedRate(TICK)) >= ROUNDS * 2 * TICK);
+		// the bot used up the budget of a tick and a half, only half a tick is left
+		long budgeted = playSlowly(RoundPacing.frameBudget(TICK * 3 / 2));
+		assertTrue(budgeted >= ROUNDS * TICK * 3 / 2);
+		assertTrue(budgeted < ROUNDS * 2 * TICK);
+	}
 }
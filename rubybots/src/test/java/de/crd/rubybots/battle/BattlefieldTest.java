@@ -0,0 +1,247 @@
+package de.crd.rubybots.battle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.battle.ActionEvent.Outcome;
+import de.crd.rubybots.battle.Battlefield.BattlefieldView;
+import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.bots.BotConfig;
+import de.crd.rubybots.config.Constants;
+import de.crd.rubybots.engine.EngineConfig.ActionLimitPolicy;
+import junit.framework.TestCase;
+
+public class BattlefieldTest extends TestCase {
+
+	private static Battle createBattle(int numberOfBots) {
+		List<BotConfig> botConfigs = new ArrayList<>();
+		for (int i = 0; i < numberOfBots; i++) {
+			botConfigs.add(new BotClasspathConfig("bot" + i + ".rb"));
+		}
+		return new Battle(botConfigs);
+	}
+
+	public void testFireDestroysBot() {
+		Battlefield battlefield = new Battlefield(createBattle(2));
+		int target = battlefield.toView(1).getMyPosition();
+		battlefield.applyAction(new Action(0, target, ActionType.FIRE));
+		assertFalse(battlefield.isBotAlive(1));
+		assertNull(battlefield.toView(0).whoIsAtPosition(target));
+		assertEquals(1, battlefield.getNumberOfMenStanding().intValue());
+		assertEquals(0, battlefield.getWinner().getBotNumber());
+		assertTrue(battlefield.isOwned());
+	}
+
+	public void testSuicideEndsBattleWithoutWinner() {
+		Battlefield battlefield = new Battlefield(createBattle(1));
+		battlefield.applyAction(new Action(0, battlefield.toView(0).getMyPosition(), ActionType.FIRE));
+		assertEquals(0, battlefield.getNumberOfMenStanding().intValue());
+		assertNull(battlefield.getWinner());
+		assertTrue(battlefield.isOwned());
+	}
+
+	public void testMoveOntoMineDestroysBot() {
+		Battlefield battlefield = new Battlefield(createBattle(3));
+		BattlefieldView view = battlefield.toView(0);
+		int next = view.getMyPosition();
+		do {
+			next = (next + 1) % view.getSize();
+		} while (view.whoIsAtPosition(next) != null);
+		battlefield.applyAction(new Action(1, next, ActionType.SET_MINE));
+		battlefield.applyAction(new Action(0, null, ActionType.MOVE));
+		assertFalse(battlefield.isBotAlive(0));
+		assertEquals(2, battlefield.getNumberOfMenStanding().intValue());
+		assertFalse(battlefield.isOwned());
+	}
+
+	public void testMoveWrapsAroundAndSkipsBots() {
+		Battle battle = createBattle(3);
+		int[] field = new int[3 * Constants.SPACE_PER_BOT];
+		Arrays.fill(field, 2, field.length, -1); // mined
+		field[field.length - 1] = 1;
+		field[0] = 2;
+		field[1] = 3;
+		Battlefield battlefield = new Battlefield(battle, 1, field, new int[3 * ActionType.values().length]);
+		ActionEvent event = battlefield.applyAction(new Action(0, null, ActionType.MOVE));
+		assertEquals(Outcome.STEPPED_ON_MINE, event.getOutcome());
+		assertEquals(2, event.getTargetPosition());
+
+		Battlefield crowded = new Battlefield(createBattle(1), 1, new int[] { 1 }, new int[ActionType.values().length]);
+		assertEquals(Outcome.BLOCKED, crowded.applyAction(new Action(0, null, ActionType.MOVE)).getOutcome());
+	}
+
+	public void testCopyIsIndependent() {
+		Battlefield battlefield = new Battlefield(createBattle(2));
+		Battlefield copy = new Battlefield(battlefield);
+		battlefield.applyAction(new Action(0, battlefield.toView(1).getMyPosition(), ActionType.FIRE));
+		assertTrue(copy.isBotAlive(1));
+		assertEquals(2, copy.getNumberOfMenStanding().intValue());
+		assertEquals(Integer.valueOf(1), battlefield.getHistory().get(0).get(ActionType.FIRE));
+		assertNull(copy.getHistory().get(0).get(ActionType.FIRE));
+	}
+
+	public void testViewsKeepStateOfRoundStart() {
+		Battlefield battlefield = new Battlefield(createBattle(2));
+		BattlefieldView viewOfBot0 = battlefield.toView(0);
+		BattlefieldView viewOfBot1 = battlefield.toView(1);
+		int target = viewOfBot1.getMyPosition();
+		viewOfBot0.fire(target);
+		battlefield.applyAction(new Action(0, target, ActionType.FIRE));
+		assertEquals(Integer.valueOf(1), viewOfBot0.whoIsAtPosition(target));
+		assertEquals(Integer.valueOf(1), viewOfBot1.whoIsAtPosition(target));
+		assertEquals(0, Battlefield.extractMoveResult(viewOfBot1).getNumberOfActions());
+		assertNull(battlefield.toView(0).whoIsAtPosition(target));
+	}
+
+	public void testJournalRebuildsEveryStep() {
+		Battlefield battlefield = new Battlefield(createBattle(3));
+		battlefield.nextRound();
+		RoundJournal journal = new RoundJournal(battlefield, 4);
+		int target = battlefield.toView(2).getMyPosition();
+		List<String> states = new ArrayList<>();
+		journal.append(battlefield.applyAction(new Action(0, null, ActionType.MOVE)));
+		states.add(battlefield.getFieldRepresentation());
+		journal.append(battlefield.applyAction(new Action(1, target, ActionType.FIRE)));
+		states.add(battlefield.getFieldRepresentation());
+		journal.append(battlefield.applyAction(new Action(2, target, ActionType.SET_MINE)));
+		states.add(battlefield.getFieldRepresentation());
+		for (int i = 0; i < states.size(); i++) {
+			assertEquals(states.get(i), journal.reconstruct(i + 1).getFieldRepresentation());
+		}
+		Battlefield rebuilt = journal.reconstruct(3);
+		assertFalse(rebuilt.isBotAlive(2));
+		assertEquals(battlefield.getHistory(), rebuilt.getHistory());
+	}
+
+	public void testQueueStopsAtCapAndMergeKeepsOrderOfBot() {
+		Battlefield battlefield = new Battlefield(createBattle(2));
+		BattlefieldView viewOfBot0 = battlefield.toView(0);
+		BattlefieldView viewOfBot1 = battlefield.toView(1);
+		for (int i = 0; i < Constants.MAX_ACTIONS_PER_BOT; i++) {
+			viewOfBot0.move();
+		}
+		viewOfBot0.fire(viewOfBot1.getMyPosition());
+		viewOfBot1.mine(-5);
+		List<MoveResult> moveResults = new ArrayList<>();
+		moveResults.add(Battlefield.extractMoveResult(viewOfBot0));
+		moveResults.add(Battlefield.extractMoveResult(viewOfBot1));
+		int[] order = Battle.mergeStableShuffled(moveResults, new SplittableRandom(1L));
+		assertEquals(Constants.MAX_ACTIONS_PER_BOT + 1, order.length);
+		ActionEvent[] events = new ActionEvent[order.length];
+		battlefield.applyActions(moveResults, order, events);
+		assertEquals(Constants.MAX_ACTIONS_PER_BOT, battlefield.getHistoryCount(0, ActionType.MOVE));
+		assertEquals(0, battlefield.getHistoryCount(0, ActionType.FIRE));
+		assertEquals(1, battlefield.getHistoryCount(1, ActionType.SET_MINE));
+		assertTrue(battlefield.isBotAlive(1));
+		battlefield.nextRound();
+		assertEquals(0, Battlefield.extractMoveResult(battlefield.toView(0)).getNumberOfActions());
+	}
+
+	public void testViewsOfEarlierRoundsAreInert() {
+		Battlefield battlefield = new Battlefield(createBattle(2));
+		battlefield.nextRound();
+		BattlefieldView oldView = battlefield.toView(0);
+		battlefield.nextRound();
+		BattlefieldView view = battlefield.toView(0);
+		oldView.move();
+		oldView.fire(0);
+		assertEquals(0, Battlefield.extractMoveResult(view).getNumberOfActions());
+		view.move();
+		// another view in the same round keeps what was queued
+		BattlefieldView sameRound = battlefield.toView(0);
+		sameRound.mine(0);
+		MoveResult moveResult = Battlefield.extractMoveResult(view);
+		assertEquals(2, moveResult.getNumberOfActions());
+		assertEquals(ActionType.MOVE, moveResult.getActionType(0));
+		assertEquals(ActionType.SET_MINE, moveResult.getActionType(1));
+	}
+
+	public void testAbandonedViewsCannotQueueIntoTheNextRound() throws InterruptedException {
+		Battlefield battlefield = new Battlefield(createBattle(2));
+		battlefield.nextRound();
+		AtomicReference<BattlefieldView> view = new AtomicReference<>(battlefield.toView(0));
+		MoveResult moveResult = Battlefield.extractMoveResult(view.get());
+		AtomicInteger queued = new AtomicInteger();
+		AtomicBoolean running = new AtomicBoolean(true);
+		// a bot thread that keeps queuing while its turn is given up
+		Thread botThread = new Thread(() -> {
+			while (running.get()) {
+				view.get().move();
+				queued.incrementAndGet();
+			}
+		});
+		botThread.start();
+		try {
+			for (int i = 0; i < 2000; i++) {
+				int before = queued.get();
+				while (queued.get() < before + 2) {
+					Thread.yield();
+				}
+				battlefield.nextRound();
+				BattlefieldView next = battlefield.toView(0);
+				assertEquals(0, moveResult.getNumberOfActions());
+				assertEquals(0, moveResult.getRejectedActions());
+				view.set(next);
+			}
+		} finally {
+			running.set(false);
+			botThread.join();
+		}
+	}
+
+	public void testActionLimitPolicies() {
+		Battlefield battlefield = new Battlefield(createBattle(2));
+		BattlefieldView view = battlefield.toView(0, ActionLimitPolicy.THROW);
+		for (int i = 0; i < Constants.MAX_ACTIONS_PER_BOT; i++) {
+			view.move();
+		}
+		try {
+			view.fire(0);
+			fail("Action over the limit accepted.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		MoveResult moveResult = Battlefield.extractMoveResult(view);
+		assertEquals(1, moveResult.getRejectedActions());
+		assertEquals(ActionType.FIRE, moveResult.getFirstRejectedActionType());
+		RoundJournal journal = new RoundJournal(battlefield, 1);
+		journal.append(battlefield.disqualify(0, ActionType.FIRE));
+		assertFalse(battlefield.isBotAlive(0));
+		assertEquals(1, battlefield.getNumberOfMenStanding().intValue());
+		assertEquals(0, battlefield.getHistoryCount(0, ActionType.FIRE));
+		assertFalse(journal.reconstruct(1).isBotAlive(0));
+	}
+
+	public void testMapBasedViewReadsLikeTheArrayBasedOne() {
+		Battle battle = createBattle(2);
+		Map<Integer, BattlefieldEntity> field = new HashMap<>();
+		field.put(3, battle.getBot(0));
+		field.put(7, battle.getBot(1));
+		field.put(5, new Mine());
+		// ignored
+		field.put(20, new Mine());
+		BattlefieldView view = new BattlefieldView(1, 10, field);
+		assertEquals(7, view.getMyPosition().intValue());
+		assertEquals(0, view.whoIsAtPosition(3).intValue());
+		assertNull(view.whoIsAtPosition(5));
+		assertNull(new BattlefieldView(1, 10, new HashMap<>()).getMyPosition());
+		int[] array = new int[10];
+		array[3] = 1;
+		array[5] = Battlefield.MINE;
+		array[7] = 2;
+		BattlefieldView arrayView = new BattlefieldView(1, 10, array, 7);
+		for (int position = 0; position < 10; position++) {
+			assertEquals(arrayView.whoIsAtPosition(position), view.whoIsAtPosition(position));
+		}
+		view.move();
+		assertEquals(ActionType.MOVE, Battlefield.extractMoveResult(view).getActionType(0));
+	}
+}
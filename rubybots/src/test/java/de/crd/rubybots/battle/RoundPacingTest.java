@@ -0,0 +1,36 @@
+package de.crd.rubybots.battle;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class RoundPacingTest extends TestCase {
+
+	private static final long TICK = 100L;
+
+	/**
+	 * @return how many milliseconds the pacing waited
+	 */
+	private static long waitAfterRound(RoundPacing roundPacing, long roundMillis) throws InterruptedException {
+		long now = System.nanoTime();
+		roundPacing.afterRound(now - TimeUnit.MILLISECONDS.toNanos(roundMillis));
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - now);
+	}
+
+	public void testFixedRateWaitsNoMatterHowLongTheRoundTook() throws InterruptedException {
+		assertTrue(waitAfterRound(RoundPacing.fixedRate(TICK), 0L) >= TICK);
+		assertTrue(waitAfterRound(RoundPacing.fixedRate(TICK), 2 * TICK) >= TICK);
+	}
+
+	public void testFrameBudgetOnlyWaitsForTheRemainderOfTheTick() throws InterruptedException {
+		long waited = waitAfterRound(RoundPacing.frameBudget(TICK), TICK / 2);
+		assertTrue(waited >= TICK / 2 - 1);
+		// generous, a single core may be busy elsewhere
+		assertTrue(waited < TICK);
+		assertTrue(waitAfterRound(RoundPacing.frameBudget(TICK), 2 * TICK) < TICK / 2);
+	}
+
+	public void testHeadlessNeverWaits() throws InterruptedException {
+		assertTrue(waitAfterRound(RoundPacing.headless(), 0L) < TICK / 2);
+	}
+}
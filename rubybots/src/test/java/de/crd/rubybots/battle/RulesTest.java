@@ -0,0 +1,54 @@
+package de.crd.rubybots.battle;
+
+import java.util.BitSet;
+
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.battle.ActionEvent.Outcome;
+import junit.framework.TestCase;
+
+public class RulesTest extends TestCase {
+
+	// the tests use the middle one of three fields side by side
+	private static final int FIELD_SIZE = 5;
+
+	private static BitSet createIndex(int[] fields) {
+		BitSet withoutBot = new BitSet(fields.length);
+		for (int i = 0; i < fields.length; i++) {
+			withoutBot.set(i, fields[i] <= Battlefield.EMPTY);
+		}
+		return withoutBot;
+	}
+
+	public void testNextFreePositionStaysOnItsField() {
+		// the neighbouring fields are free everywhere
+		int[] fields = { 0, 0, 0, 0, 0, 1, 2, 0, 3, 4, 0, 0, 0, 0, 0 };
+		BitSet withoutBot = createIndex(fields);
+		assertEquals(2, Rules.getNextFreePosition(withoutBot, FIELD_SIZE, FIELD_SIZE, 0));
+		// wraps around within the field
+		assertEquals(2, Rules.getNextFreePosition(withoutBot, FIELD_SIZE, FIELD_SIZE, 3));
+		Rules.setCell(fields, withoutBot, FIELD_SIZE + 2, 5);
+		assertEquals(Battlefield.NO_POSITION, Rules.getNextFreePosition(withoutBot, FIELD_SIZE, FIELD_SIZE, 4));
+	}
+
+	public void testResolveReadsItsField() {
+		int[] fields = { 0, 0, 0, 0, 0, 1, -1, 0, 2, 0, 0, 0, 0, 0, 0 };
+		assertEquals(Outcome.STEPPED_ON_MINE, Rules.resolve(fields, FIELD_SIZE, FIELD_SIZE, 0, ActionType.MOVE, 1));
+		assertEquals(Outcome.SUICIDE, Rules.resolve(fields, FIELD_SIZE, FIELD_SIZE, 0, ActionType.FIRE, 0));
+		assertEquals(Outcome.DESTROYED_BOT, Rules.resolve(fields, FIELD_SIZE, FIELD_SIZE, 0, ActionType.FIRE, 3));
+		assertEquals(Outcome.MISSED, Rules.resolve(fields, FIELD_SIZE, FIELD_SIZE, 0, ActionType.FIRE, FIELD_SIZE));
+		assertEquals(Outcome.MINE_REJECTED, Rules.resolve(fields, FIELD_SIZE, FIELD_SIZE, 0, ActionType.SET_MINE, 1));
+		assertEquals(Outcome.MINE_SET, Rules.resolve(fields, FIELD_SIZE, FIELD_SIZE, 0, ActionType.SET_MINE, 2));
+	}
+
+	public void testApplyKeepsTheIndexInSync() {
+		int[] fields = { 0, 0, 0, 0, 0, 1, -1, 0, 2, 0, 0, 0, 0, 0, 0 };
+		BitSet withoutBot = createIndex(fields);
+		assertEquals(1, Rules.apply(fields, withoutBot, FIELD_SIZE, 0, Outcome.DESTROYED_BOT, Battlefield.NO_POSITION,
+				3));
+		assertEquals(0, Rules.apply(fields, withoutBot, FIELD_SIZE, 0, Outcome.STEPPED_ON_MINE, 0, 1));
+		assertEquals(createIndex(fields), withoutBot);
+		for (int cell : fields) {
+			assertEquals(Battlefield.EMPTY, cell);
+		}
+	}
+}
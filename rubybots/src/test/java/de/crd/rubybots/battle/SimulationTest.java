@@ -0,0 +1,110 @@
+package de.crd.rubybots.battle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import de.crd.rubybots.battle.Battlefield.BattlefieldView;
+import de.crd.rubybots.bots.BotConfig;
+import de.crd.rubybots.bots.BotJavaConfig;
+import de.crd.rubybots.engine.Engine;
+import junit.framework.TestCase;
+
+public class SimulationTest extends TestCase {
+
+	/**
+	 * Fires at the nearest bot ahead and moves otherwise.
+	 */
+	private static void hunt(Context context) {
+		BattlefieldView battlefield = context.getBattlefield();
+		int myPosition = battlefield.getMyPosition();
+		for (int distance = 1; distance < battlefield.getSize(); distance++) {
+			int position = (myPosition + distance) % battlefield.getSize();
+			if (battlefield.whoIsAtPosition(position) != null) {
+				battlefield.fire(position);
+				return;
+			}
+		}
+		battlefield.move();
+	}
+
+	/**
+	 * Queues random actions, including more than allowed, and remembers how
+	 * often it played.
+	 */
+	private static void wander(Context context) {
+		SplittableRandom random = new SplittableRandom(context.getSeed());
+		BattlefieldView battlefield = context.getBattlefield();
+		Integer turns = (Integer) context.getStoredData();
+		context.storeData(turns == null ? 1 : turns + 1);
+		for (int i = 0; i < 5; i++) {
+			switch (random.nextInt(4)) {
+			case 0:
+				battlefield.move();
+				break;
+			case 1:
+				battlefield.mine(random.nextInt(-1, battlefield.getSize() + 1));
+				break;
+			case 2:
+				battlefield.fire(random.nextInt(battlefield.getSize()));
+				break;
+			default:
+				// idles
+			}
+		}
+	}
+
+	private static List<BotJavaConfig> createBots() {
+		return Arrays.asList(new BotJavaConfig(SimulationTest::hunt, "hunter"),
+				new BotJavaConfig(SimulationTest::wander, "wanderer"),
+				new BotJavaConfig(SimulationTest::wander, "wanderer 2"));
+	}
+
+	public void testPlaysLikeBattle() {
+		List<BotJavaConfig> botConfigs = createBots();
+		SimulationResult result = new Simulation(botConfigs, 100).run(200, 42L);
+		Engine engine = new Engine(null);
+		try {
+			engine.loadBotsFromJava(botConfigs);
+			for (int i = 0; i < result.getNumberOfBattles(); i++) {
+				Battle battle = new Battle(100, new ArrayList<BotConfig>(botConfigs), RoundPacing.headless(),
+						result.getSeed(i));
+				battle.execute(engine);
+				BattleStats battleStats = battle.getCurrentBattleStats();
+				Bot winner = battleStats.getWinner();
+				assertEquals("battle " + i, winner != null ? winner.getBotNumber() : null, result.getWinner(i));
+				assertEquals("battle " + i, battleStats.getBattlefield().getCurrentRound(), result.getRounds(i));
+			}
+		} finally {
+			engine.shutdown();
+		}
+		assertTrue(result.getWins(0) > 0);
+		assertTrue(result.getWins(1) + result.getWins(2) > 0);
+	}
+
+	public void testResultDoesNotDependOnPool() {
+		List<BotJavaConfig> botConfigs = createBots();
+		SimulationResult parallel = new Simulation(botConfigs, 50).run(500, 7L);
+		SimulationResult sequential = new Simulation(botConfigs, 50).run(500, 7L, new ForkJoinPool(1));
+		for (int i = 0; i < parallel.getNumberOfBattles(); i++) {
+			assertEquals(parallel.getWinner(i), sequential.getWinner(i));
+			assertEquals(parallel.getRounds(i), sequential.getRounds(i));
+		}
+		assertEquals(500, parallel.getWins(0) + parallel.getWins(1) + parallel.getWins(2) + parallel.getDraws());
+	}
+
+	public void testFailingBotLosesItsTurn() {
+		List<BotJavaConfig> botConfigs = Arrays.asList(new BotJavaConfig(SimulationTest::hunt, "hunter"),
+				new BotJavaConfig(context -> {
+					context.getBattlefield().fire(context.getBattlefield().getMyPosition() + 1);
+					throw new IllegalStateException("broken");
+				}, "broken"), new BotJavaConfig(context -> {
+					throw new StackOverflowError();
+				}, "overflowing"));
+		SimulationResult result = new Simulation(botConfigs, 100).run(10, 1L);
+		assertEquals(10, result.getWins(0));
+		assertTrue(result.getFailedTurns() > 0);
+	}
+}
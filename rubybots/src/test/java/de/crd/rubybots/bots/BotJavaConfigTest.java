@@ -0,0 +1,98 @@
+package de.crd.rubybots.bots;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import de.crd.rubybots.battle.Context;
+import junit.framework.TestCase;
+
+public class BotJavaConfigTest extends TestCase {
+
+	private static final String SERVICES = "META-INF/services/" + BotStrategy.class.getName();
+
+	public static class Mover implements BotStrategy {
+
+		@Override
+		public void play(Context context) {
+			context.getBattlefield().move();
+		}
+	}
+
+	private static void addEntry(JarOutputStream jar, String name, byte[] content) throws IOException {
+		jar.putNextEntry(new JarEntry(name));
+		jar.write(content);
+		jar.closeEntry();
+	}
+
+	/**
+	 * Compiled here, so the class is not on the test classpath as well.
+	 */
+	private static File createJar(String services) throws IOException {
+		File directory = Files.createTempDirectory("bots").toFile();
+		File source = new File(directory, "JarBot.java");
+		Files.write(source.toPath(), ("public class JarBot implements " + BotStrategy.class.getName() + " {\n"
+				+ "public void play(" + Context.class.getName() + " context) {}\n}").getBytes(StandardCharsets.UTF_8));
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		String classpath = new File(BotStrategy.class.getProtectionDomain().getCodeSource().getLocation().getPath())
+				.getPath();
+		assertEquals(0, compiler.run(null, null, null, "-classpath", classpath, source.getPath()));
+		File jarFile = new File(directory, "bots.jar");
+		try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarFile))) {
+			addEntry(jar, "JarBot.class", Files.readAllBytes(new File(directory, "JarBot.class").toPath()));
+			addEntry(jar, SERVICES, services.getBytes(StandardCharsets.UTF_8));
+		}
+		return jarFile;
+	}
+
+	public void testForClass() {
+		BotJavaConfig botConfig = BotJavaConfig.forClass(Mover.class.getName());
+		assertEquals("Mover", botConfig.getName());
+		assertTrue(botConfig.getStrategy() instanceof Mover);
+	}
+
+	public void testForClassRejectsOtherClasses() {
+		for (String className : new String[] { String.class.getName(), "de.crd.rubybots.bots.Missing" }) {
+			try {
+				BotJavaConfig.forClass(className);
+				fail(className + " accepted.");
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().contains(className));
+			}
+		}
+	}
+
+	public void testFromJarLoadsServices() throws IOException {
+		List<BotJavaConfig> botConfigs = BotJavaConfig.fromJar(createJar("JarBot\n"));
+		assertEquals(1, botConfigs.size());
+		assertEquals("JarBot", botConfigs.get(0).getName());
+		assertNotSame(getClass().getClassLoader(), botConfigs.get(0).getStrategy().getClass().getClassLoader());
+	}
+
+	public void testFromJarIgnoresBotsOfTheClasspath() throws IOException {
+		File jar = createJar(Mover.class.getName() + "\n");
+		try {
+			BotJavaConfig.fromJar(jar);
+			fail("Bot of the classpath loaded from " + jar);
+		} catch (IllegalArgumentException e) {
+			assertEquals("No bots found in " + jar + ".", e.getMessage());
+		}
+	}
+
+	public void testFromJarReportsBrokenServices() throws IOException {
+		try {
+			BotJavaConfig.fromJar(createJar("Missing\n"));
+			fail("Missing bot accepted.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("could not be created"));
+		}
+	}
+}
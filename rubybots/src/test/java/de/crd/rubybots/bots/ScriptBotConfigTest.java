@@ -0,0 +1,26 @@
+package de.crd.rubybots.bots;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+public class ScriptBotConfigTest extends TestCase {
+
+	// registered by the tests' CommandScriptEngine
+	private static final String COMMANDS = "cmds";
+
+	public void testLanguageIsTheExtensionOfARegisteredEngine() {
+		assertEquals("rb", new BotFileConfig(new File("bots/mover.rb")).getScriptLanguage());
+		assertEquals(COMMANDS, new BotFileConfig(new File("bots/mover.CMDS")).getScriptLanguage());
+		assertEquals(COMMANDS, new BotClasspathConfig("bots/mover.cmds").getScriptLanguage());
+	}
+
+	public void testOtherFilesAreRubyBots() {
+		assertEquals("rb", new BotFileConfig(new File("bots/mover")).getScriptLanguage());
+		assertEquals("rb", new BotFileConfig(new File("bots.d/mover")).getScriptLanguage());
+		assertEquals("rb", new BotFileConfig(new File("bots/mover.txt")).getScriptLanguage());
+		assertEquals("rb", new BotClasspathConfig("bots/mover.bot").getScriptLanguage());
+		// given explicitly, the language is not checked
+		assertEquals("txt", new BotFileConfig(new File("bots/mover.txt"), "txt").getScriptLanguage());
+	}
+}
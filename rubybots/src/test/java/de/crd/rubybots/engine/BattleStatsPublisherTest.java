@@ -0,0 +1,69 @@
+package de.crd.rubybots.engine;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.crd.rubybots.battle.BattleStats;
+import de.crd.rubybots.engine.BattleStatsPublisher.DeliveryMode;
+import junit.framework.TestCase;
+
+public class BattleStatsPublisherTest extends TestCase {
+
+	public void testFailingListenerKeepsReceiving() {
+		BattleStatsPublisher publisher = new BattleStatsPublisher();
+		AtomicInteger delivered = new AtomicInteger();
+		publisher.subscribe(battleStats -> {
+			if (delivered.incrementAndGet() == 1) {
+				throw new IllegalStateException("first delivery fails");
+			}
+		}, DeliveryMode.LOSSLESS, 1, 0L);
+		// blocks for good if the subscriber died with the first delivery
+		for (int i = 0; i < 10; i++) {
+			publisher.publish(new BattleStats(0L, 2, null));
+		}
+		publisher.shutdown();
+		assertEquals(10, delivered.get());
+	}
+
+	public void testShutdownDeliversBufferedStats() {
+		BattleStatsPublisher publisher = new BattleStatsPublisher();
+		AtomicInteger delivered = new AtomicInteger();
+		publisher.subscribe(battleStats -> delivered.incrementAndGet(), DeliveryMode.LOSSLESS, 100, 10L);
+		for (int i = 0; i < 20; i++) {
+			publisher.publish(new BattleStats(0L, 2, null));
+		}
+		publisher.shutdown();
+		assertEquals(20, delivered.get());
+		assertEquals(0, publisher.getQueueDepth());
+	}
+
+	public void testPublishingDoesNotBlockAfterShutdown() throws InterruptedException {
+		BattleStatsPublisher publisher = new BattleStatsPublisher();
+		CountDownLatch release = new CountDownLatch(1);
+		publisher.subscribe(battleStats -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, DeliveryMode.LOSSLESS, 1, 0L);
+		// one delivered, one buffered, the third waits for room
+		Thread battle = new Thread(() -> {
+			for (int i = 0; i < 3; i++) {
+				publisher.publish(new BattleStats(0L, 2, null));
+			}
+		});
+		battle.start();
+		Thread shutdown = new Thread(publisher::shutdown);
+		shutdown.start();
+		try {
+			battle.join(2000L);
+			assertFalse("battle still blocked", battle.isAlive());
+			// dropped right away
+			publisher.publish(new BattleStats(0L, 2, null));
+		} finally {
+			release.countDown();
+			shutdown.join();
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package de.crd.rubybots.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class BotCacheTest extends TestCase {
+
+	private static File createDirectory() throws IOException {
+		File directory = Files.createTempDirectory("botcache").toFile();
+		directory.deleteOnExit();
+		return directory;
+	}
+
+	public void testKeyDependsOnSourceAndVersion() {
+		String key = BotCache.getKey("1", "$context.battlefield.move");
+		assertEquals(64, key.length());
+		assertEquals(key, BotCache.getKey("1", "$context.battlefield.move"));
+		assertFalse(key.equals(BotCache.getKey("2", "$context.battlefield.move")));
+		assertFalse(key.equals(BotCache.getKey("1", "$context.battlefield.fire(0)")));
+	}
+
+	public void testEvictsLeastRecentlyUsed() throws IOException {
+		File directory = createDirectory();
+		BotCache botCache = new BotCache(directory, 20);
+		botCache.put("a", new byte[8]);
+		botCache.put("b", new byte[8]);
+		assertNotNull(botCache.get("a"));
+		botCache.put("c", new byte[8]);
+		assertNull(botCache.get("b"));
+		assertTrue(Arrays.equals(new byte[8], botCache.get("a")));
+		assertNotNull(botCache.get("c"));
+		assertEquals(16, botCache.getBytes());
+		assertEquals(3, botCache.getHits());
+		assertEquals(1, botCache.getMisses());
+		for (File file : directory.listFiles()) {
+			file.deleteOnExit();
+		}
+	}
+
+	public void testKeepsEntriesOfEarlierRuns() throws IOException {
+		File directory = createDirectory();
+		new BotCache(directory, 100).put("a", new byte[8]);
+		BotCache botCache = new BotCache(directory, 100);
+		assertEquals(8, botCache.getBytes());
+		assertNotNull(botCache.get("a"));
+		botCache.remove("a");
+		assertNull(botCache.get("a"));
+		assertEquals(0, botCache.getBytes());
+	}
+}
@@ -0,0 +1,147 @@
+package de.crd.rubybots.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+import de.crd.rubybots.battle.Context;
+
+/**
+ * A minimal second script language for the tests. A bot is one command per
+ * line: <code>move</code>, <code>fire &lt;position&gt;</code> or
+ * <code>throw</code>, which fails with an unchecked exception the way many
+ * JSR-223 engines report errors.
+ */
+public class CommandScriptEngine extends AbstractScriptEngine {
+
+	static final String EXTENSION = "cmds";
+
+	@Override
+	public Object eval(String script, ScriptContext scriptContext) throws ScriptException {
+		Context context = (Context) scriptContext.getAttribute("context");
+		for (String line : script.split("\n")) {
+			String[] command = line.trim().split(" ");
+			switch (command[0]) {
+			case "":
+				break;
+			case "move":
+				context.getBattlefield().move();
+				break;
+			case "fire":
+				context.getBattlefield().fire(Integer.parseInt(command[1]));
+				break;
+			case "throw":
+				throw new IllegalStateException("thrown by the bot");
+			default:
+				throw new ScriptException("Unknown command: " + line);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Object eval(Reader reader, ScriptContext scriptContext) throws ScriptException {
+		StringBuilder script = new StringBuilder();
+		try (BufferedReader lines = new BufferedReader(reader)) {
+			for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+				script.append(line).append('\n');
+			}
+		} catch (IOException e) {
+			throw new ScriptException(e);
+		}
+		return eval(script.toString(), scriptContext);
+	}
+
+	@Override
+	public Bindings createBindings() {
+		return new SimpleBindings();
+	}
+
+	@Override
+	public ScriptEngineFactory getFactory() {
+		return new Factory();
+	}
+
+	public static class Factory implements ScriptEngineFactory {
+
+		@Override
+		public String getEngineName() {
+			return "commands";
+		}
+
+		@Override
+		public String getEngineVersion() {
+			return "1";
+		}
+
+		@Override
+		public List<String> getExtensions() {
+			return Collections.singletonList(EXTENSION);
+		}
+
+		@Override
+		public List<String> getMimeTypes() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<String> getNames() {
+			return Arrays.asList("commands");
+		}
+
+		@Override
+		public String getLanguageName() {
+			return "commands";
+		}
+
+		@Override
+		public String getLanguageVersion() {
+			return "1";
+		}
+
+		@Override
+		public Object getParameter(String key) {
+			switch (key) {
+			case ScriptEngine.ENGINE:
+				return getEngineName();
+			case ScriptEngine.NAME:
+				return getNames().get(0);
+			case ScriptEngine.LANGUAGE:
+				return getLanguageName();
+			default:
+				return null;
+			}
+		}
+
+		@Override
+		public String getMethodCallSyntax(String obj, String m, String... args) {
+			return m;
+		}
+
+		@Override
+		public String getOutputStatement(String toDisplay) {
+			return "";
+		}
+
+		@Override
+		public String getProgram(String... statements) {
+			return String.join("\n", statements);
+		}
+
+		@Override
+		public ScriptEngine getScriptEngine() {
+			return new CommandScriptEngine();
+		}
+	}
+}
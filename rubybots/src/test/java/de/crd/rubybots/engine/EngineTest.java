@@ -0,0 +1,433 @@
+package de.crd.rubybots.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.script.ScriptException;
+
+import de.crd.rubybots.RubyBots;
+import de.crd.rubybots.battle.Action.ActionType;
+import de.crd.rubybots.battle.Battle;
+import de.crd.rubybots.battle.Battlefield;
+import de.crd.rubybots.battle.BotTimings;
+import de.crd.rubybots.battle.RoundPacing;
+import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.bots.BotConfig;
+import de.crd.rubybots.bots.BotFileConfig;
+import de.crd.rubybots.bots.BotJavaConfig;
+import junit.framework.TestCase;
+
+public class EngineTest extends TestCase {
+
+	private static final String LOOPING_BOT = "loop {}";
+	private static final int ROUNDS = 3;
+	private static volatile boolean released;
+
+	static BotFileConfig createBot(String name, String source) throws IOException {
+		return createBot(name, ScriptRuntime.RUBY, source);
+	}
+
+	static BotFileConfig createBot(String name, String language, String source) throws IOException {
+		File file = File.createTempFile(name, "." + language);
+		file.deleteOnExit();
+		Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+		return new BotFileConfig(file);
+	}
+
+	/**
+	 * Different sources, so every mover gets its own script.
+	 */
+	static BotFileConfig createMover(int number) throws IOException {
+		return createBot("mover", "# mover " + number + "\n$context.battlefield.move");
+	}
+
+	private static Battle startBattle(RubyBots rubyBots) {
+		Battle battle = rubyBots.startBattle(ROUNDS, RoundPacing.headless(), 1L);
+		assertNotNull(battle);
+		return battle;
+	}
+
+	/**
+	 * The first bot ran over its budget in the given number of turns, all the
+	 * others played every round.
+	 */
+	private static void assertForfeited(Battle battle, int forfeitedTurns) {
+		BotTimings botTimings = battle.getBotTimings();
+		assertEquals(forfeitedTurns, botTimings.getForfeitedTurns(0));
+		for (int bot = 1; bot < botTimings.getNumberOfBots(); bot++) {
+			assertEquals("turns of bot " + bot, ROUNDS, botTimings.getTurns(bot));
+			assertEquals("forfeited turns of bot " + bot, 0, botTimings.getForfeitedTurns(bot));
+		}
+	}
+
+	private static void assertLoopingBotIsStopped(EngineConfig engineConfig) throws IOException {
+		engineConfig.setParallelism(2);
+		// the second mover waits on the looping bot's lane
+		List<BotConfig> botConfigs = Arrays.asList(createBot("looper", LOOPING_BOT), createMover(1),
+				createMover(2));
+		RubyBots rubyBots = new RubyBots(null, botConfigs, engineConfig);
+		try {
+			assertForfeited(startBattle(rubyBots), ROUNDS);
+			assertForfeited(startBattle(rubyBots), ROUNDS);
+			assertEquals(0L, rubyBots.getMetrics().getGauges().get("lanesReplaced").longValue());
+		} finally {
+			rubyBots.shutdown();
+		}
+	}
+
+	public void testLoopingBotForfeitsOnTurnTimeout() throws IOException {
+		EngineConfig engineConfig = new EngineConfig();
+		engineConfig.setTurnTimeoutMillis(200L);
+		assertLoopingBotIsStopped(engineConfig);
+	}
+
+	public void testLoopingBotForfeitsOnCpuBudget() throws IOException {
+		EngineConfig engineConfig = new EngineConfig();
+		engineConfig.setCpuBudgetMillis(200L);
+		assertLoopingBotIsStopped(engineConfig);
+	}
+
+	public void testRubyAndJavaBotsPlayTogether() throws IOException {
+		BotJavaConfig javaMover = new BotJavaConfig(context -> context.getBattlefield().move(), "java mover");
+		BotJavaConfig failing = new BotJavaConfig(context -> {
+			context.getBattlefield().move();
+			throw new AssertionError("failing");
+		}, "failing");
+		BotJavaConfig overflowing = new BotJavaConfig(context -> {
+			throw new StackOverflowError();
+		}, "overflowing");
+		List<BotConfig> botConfigs = Arrays.asList(createMover(1), javaMover, failing, overflowing);
+		RubyBots rubyBots = new RubyBots(null, botConfigs, new EngineConfig());
+		try {
+			Battle battle = startBattle(rubyBots);
+			assertForfeited(battle, 0);
+			Battlefield battlefield = battle.getCurrentBattleStats().getBattlefield();
+			assertEquals(ROUNDS, battlefield.getHistoryCount(0, ActionType.MOVE));
+			assertEquals(ROUNDS, battlefield.getHistoryCount(1, ActionType.MOVE));
+			// the moves queued before failing are dropped
+			assertEquals(0, battlefield.getHistoryCount(2, ActionType.MOVE));
+			assertEquals(4, battlefield.getNumberOfMenStanding().intValue());
+		} finally {
+			rubyBots.shutdown();
+		}
+	}
+
+	public void testBotsOfARoundRunConcurrentlyOnTheirLanes() throws IOException {
+		int numberOfBots = 3;
+		// every bot waits for all the others, so they must run at the same time
+		CyclicBarrier barrier = new CyclicBarrier(numberOfBots);
+		List<BotConfig> botConfigs = new ArrayList<>();
+		for (int i = 0; i < numberOfBots; i++) {
+			botConfigs.add(new BotJavaConfig(context -> {
+				try {
+					barrier.await(10L, TimeUnit.SECONDS);
+				} catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+					throw new IllegalStateException("Bots did not meet.", e);
+				}
+				context.getBattlefield().move();
+			}, "meeting " + i));
+		}
+		EngineConfig engineConfig = new EngineConfig();
+		engineConfig.setParallelism(numberOfBots);
+		RubyBots rubyBots = new RubyBots(null, botConfigs, engineConfig);
+		try {
+			Battlefield battlefield = startBattle(rubyBots).getCurrentBattleStats().getBattlefield();
+			for (int bot = 0; bot < numberOfBots; bot++) {
+				assertEquals("moves of bot " + bot, ROUNDS, battlefield.getHistoryCount(bot, ActionType.MOVE));
+			}
+		} finally {
+			rubyBots.shutdown();
+		}
+	}
+
+	public void testLanesHaveIsolatedRuntimes() throws IOException {
+		List<BotConfig> botConfigs = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			botConfigs.add(createBot("counting", "# counting " + i + "\n$calls = ($calls || 0) + 1\n"
+					+ "$context.storeData($calls)"));
+		}
+		EngineConfig engineConfig = new EngineConfig();
+		engineConfig.setParallelism(2);
+		RubyBots rubyBots = new RubyBots(null, botConfigs, engineConfig);
+		try {
+			Battle battle = startBattle(rubyBots);
+			// each bot only sees the global of its own lane
+			assertEquals((long) ROUNDS, battle.getBot(0).getStoredData());
+			assertEquals((long) ROUNDS, battle.getBot(1).getStoredData());
+		} finally {
+			rubyBots.shutdown();
+		}
+	}
+
+	public void testUncheckedScriptErrorsFailTheTurnOnly() throws IOException {
+		EngineConfig engineConfig = new EngineConfig();
+		engineConfig.setParallelism(2);
+		engineConfig.setTurnTimeoutMillis(1000L);
+		List<BotConfig> botConfigs = Arrays.asList(createMover(1),
+				createBot("mover", CommandScriptEngine.EXTENSION, "move"),
+				createBot("throwing", CommandScriptEngine.EXTENSION, "move\nthrow"));
+		RubyBots rubyBots = new RubyBots(null, botConfigs, engineConfig);
+		try {
+			for (int i = 0; i < 2; i++) {
+				Battle battle = startBattle(rubyBots);
+				assertForfeited(battle, 0);
+				Battlefield battlefield = battle.getCurrentBattleStats().getBattlefield();
+				assertEquals(ROUNDS, battlefield.getHistoryCount(0, ActionType.MOVE));
+				assertEquals(ROUNDS, battlefield.getHistoryCount(1, ActionType.MOVE));
+			}
+		} finally {
+			rubyBots.shutdown();
+		}
+	}
+
+	public void testBotsOnlySeeTheContextApi() throws IOException {
+		BotFileConfig probing = createBot("probing", "$context.storeData([:trace, :getTrace, :bot_config, "
+				+ ":getBotConfig, :pinScriptId, :pinned_script_id].select { |m| $context.respond_to?(m) }.inspect)");
+		RubyBots rubyBots = new RubyBots(null, Arrays.<BotConfig> asList(probing, createMover(1)),
+				new EngineConfig());
+		try {
+			assertEquals("[]", startBattle(rubyBots).getBot(0).getStoredData());
+		} finally {
+			rubyBots.shutdown();
+		}
+	}
+
+	public void testLoadBotsFromJava() {
+		Engine engine = new Engine(null);
+		try {
+			engine.loadBotsFromJava(Arrays.asList(new BotJavaConfig(context -> {
+			}, "idle"), new BotJavaConfig(context -> context.getBattlefield().move(), "mover")));
+			assertEquals(2, engine.getNumberOfBots());
+			assertEquals(2, engine.getMetrics().getBotCallLatencyP99().size());
+			assertTrue(engine.getMetrics().getBotCallLatencyP99().containsKey("1:mover"));
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	public void testIdenticalBotsShareTheirScriptOnly() throws IOException, ScriptException {
+		// remembers its lane
+		String laneBot = "$context.storeData(java.lang.Thread.currentThread.name)\n$context.battlefield.move";
+		List<BotFileConfig> botConfigs = Arrays.asList(createBot("lane", laneBot), createBot("lane", laneBot),
+				createMover(1));
+		EngineConfig engineConfig = new EngineConfig();
+		engineConfig.setParallelism(2);
+		Engine engine = new Engine(null, engineConfig);
+		try {
+			engine.prepareEngine();
+			BotLoadSummary summary = engine.loadBotsFromFiles(botConfigs);
+			assertEquals(3, summary.getBots());
+			assertEquals(2, summary.getScripts());
+			assertEquals(botConfigs.stream().mapToLong(botConfig -> botConfig.getBotFile().length()).sum(),
+					summary.getBytes());
+			assertTrue(summary.getFailures().isEmpty());
+			assertEquals(3, engine.getMetrics().getBotCallLatencyP99().size());
+			Battle battle = new Battle(ROUNDS, new ArrayList<BotConfig>(botConfigs), RoundPacing.headless(), 1L);
+			battle.execute(engine);
+			for (int botId = 0; botId < botConfigs.size(); botId++) {
+				assertEquals(ROUNDS, engine.getMetrics().getBotCallLatencyHistogram(botId).getCount());
+			}
+			assertFalse(battle.getBot(0).getStoredData().equals(battle.getBot(1).getStoredData()));
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	public void testFailedBotsAreListedTogether() throws IOException, ScriptException {
+		BotFileConfig broken = createBot("broken", "def (");
+		BotFileConfig missing = new BotFileConfig(new File(broken.getBotFile().getPath() + ".missing.rb"));
+		Engine engine = new Engine(null);
+		try {
+			engine.prepareEngine();
+			try {
+				engine.loadBotsFromFiles(Arrays.asList(createMover(1), broken, missing));
+				fail("Broken bots loaded.");
+			} catch (IllegalStateException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("2 bots could not be loaded"));
+				assertTrue(e.getMessage(), e.getMessage().contains(broken.getBotFile().getPath()));
+				assertTrue(e.getMessage(), e.getMessage().contains(missing.getBotFile().getPath()));
+			}
+			assertEquals(1, engine.getNumberOfBots());
+			assertEquals(1, engine.getMetrics().getBotCallLatencyP99().size());
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	public void testBackendIsChosenByExtension() throws IOException, ScriptException {
+		File botFile = createMover(1).getBotFile();
+		File withoutExtension = new File(botFile.getParentFile(), botFile.getName().replace(".rb", ""));
+		assertTrue(botFile.renameTo(withoutExtension));
+		withoutExtension.deleteOnExit();
+		BotFileConfig rubyBot = new BotFileConfig(withoutExtension);
+		assertEquals("rb", rubyBot.getScriptLanguage());
+		assertEquals("rb", new BotClasspathConfig("de.crd/bot").getScriptLanguage());
+		assertEquals(CommandScriptEngine.EXTENSION, new BotClasspathConfig("bots/bot.CMDS").getScriptLanguage());
+		// no engine for them, so they are still Ruby bots
+		assertEquals("rb", new BotClasspathConfig("bots/bot.JS").getScriptLanguage());
+		Engine engine = new Engine(null);
+		try {
+			engine.prepareEngine();
+			engine.loadBotsFromFiles(Arrays.asList(rubyBot));
+			assertEquals(1, engine.getNumberOfBots());
+			// other languages get runtimes of their own
+			for (String gauge : engine.getMetrics().getGauges().keySet()) {
+				assertFalse(gauge, gauge.startsWith("runtimes."));
+			}
+			File otherLanguage = File.createTempFile("bot", ".nope");
+			otherLanguage.deleteOnExit();
+			try {
+				engine.loadBotsFromFiles(Arrays.asList(new BotFileConfig(otherLanguage, "nope")));
+				fail("Bot without engine loaded.");
+			} catch (IllegalStateException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("1 bots could not be loaded"));
+				assertTrue(e.getMessage(), e.getMessage().contains("No script engine found for .nope bots."));
+			}
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	private static long getScripts(Engine engine) {
+		return engine.getMetrics().getGauges().get("scripts");
+	}
+
+	private static String getVersion(Battle battle) {
+		return (String) battle.getBot(0).getStoredData();
+	}
+
+	public void testRunningBattleKeepsVersionOfReloadedBot() throws Exception {
+		BotFileConfig reloaded = createBot("reloaded", "$context.storeData('v1')");
+		BotFileConfig mover = createMover(1);
+		List<BotConfig> botConfigs = Arrays.asList(reloaded, mover);
+		CountDownLatch firstRoundPlayed = new CountDownLatch(1);
+		CountDownLatch reloadDone = new CountDownLatch(1);
+		Engine engine = new Engine(null);
+		try {
+			engine.prepareEngine();
+			engine.loadBotsFromFiles(Arrays.asList(reloaded, mover));
+			assertEquals(2L, getScripts(engine));
+			Battle running = new Battle(ROUNDS, botConfigs, roundStartNanos -> {
+				firstRoundPlayed.countDown();
+				reloadDone.await();
+			}, 1L);
+			Thread battleThread = new Thread(() -> running.execute(engine));
+			battleThread.start();
+			assertTrue(firstRoundPlayed.await(60L, TimeUnit.SECONDS));
+			Files.write(reloaded.getBotFile().toPath(), "$context.storeData('v2')".getBytes(StandardCharsets.UTF_8));
+			engine.reloadBot(reloaded);
+			// the running battle still holds the first version
+			assertEquals(3L, getScripts(engine));
+			Battle next = new Battle(ROUNDS, botConfigs, RoundPacing.headless(), 1L);
+			next.execute(engine);
+			assertEquals("v2", getVersion(next));
+			reloadDone.countDown();
+			battleThread.join(60000L);
+			assertEquals("v1", getVersion(running));
+			assertEquals(ROUNDS, running.getBotTimings().getTurns(0));
+			assertEquals(2L, getScripts(engine));
+			// released right away, no battle is running it
+			Files.write(reloaded.getBotFile().toPath(), "$context.storeData('v3')".getBytes(StandardCharsets.UTF_8));
+			engine.reloadBot(reloaded);
+			assertEquals(2L, getScripts(engine));
+			Battle last = new Battle(ROUNDS, botConfigs, RoundPacing.headless(), 1L);
+			last.execute(engine);
+			assertEquals("v3", getVersion(last));
+		} finally {
+			reloadDone.countDown();
+			engine.shutdown();
+		}
+	}
+
+	private static File createCacheDirectory() throws IOException {
+		File directory = Files.createTempDirectory("botcache").toFile();
+		directory.deleteOnExit();
+		return directory;
+	}
+
+	/**
+	 * @return the field and history after a seeded battle of random bots
+	 */
+	private static String playRandomBattle(EngineConfig engineConfig, List<BotFileConfig> botConfigs,
+			String cacheGauge) throws ScriptException {
+		Engine engine = new Engine(null, engineConfig);
+		try {
+			engine.prepareEngine();
+			engine.loadBotsFromFiles(botConfigs);
+			if (cacheGauge != null) {
+				assertEquals(Long.valueOf(1L), engine.getMetrics().getGauges().get(cacheGauge));
+			}
+			Battle battle = new Battle(50, new ArrayList<BotConfig>(botConfigs), RoundPacing.headless(), 7L);
+			battle.execute(engine);
+			Battlefield battlefield = battle.getCurrentBattleStats().getBattlefield();
+			return battlefield.getCurrentRound() + " " + battlefield.getFieldRepresentation() + " "
+					+ battlefield.getHistory();
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	public void testCachedBotsPlayLikeCompiledOnes() throws IOException, ScriptException {
+		BotFileConfig randomBot = createBot("random",
+				"bf = $context.battlefield\nrand(2) == 0 ? bf.move : bf.fire(rand(bf.size))");
+		List<BotFileConfig> botConfigs = Arrays.asList(randomBot, new BotFileConfig(randomBot.getBotFile()),
+				new BotFileConfig(randomBot.getBotFile()));
+		String compiled = playRandomBattle(new EngineConfig(), botConfigs, null);
+		EngineConfig engineConfig = new EngineConfig();
+		engineConfig.setBotCacheDirectory(createCacheDirectory());
+		assertEquals(compiled, playRandomBattle(engineConfig, botConfigs, "botCacheMisses"));
+		for (File file : engineConfig.getBotCacheDirectory().listFiles()) {
+			file.deleteOnExit();
+		}
+		assertEquals(compiled, playRandomBattle(engineConfig, botConfigs, "botCacheHits"));
+	}
+
+	public void testLoopingCachedBotForfeitsOnTurnTimeout() throws IOException {
+		EngineConfig engineConfig = new EngineConfig();
+		engineConfig.setTurnTimeoutMillis(200L);
+		engineConfig.setBotCacheDirectory(createCacheDirectory());
+		assertLoopingBotIsStopped(engineConfig);
+		for (File file : engineConfig.getBotCacheDirectory().listFiles()) {
+			file.deleteOnExit();
+		}
+		assertEquals(3, engineConfig.getBotCacheDirectory().listFiles().length);
+	}
+
+	public void testUnresponsiveLaneIsReplaced() throws IOException {
+		// ignores being interrupted in its first turn
+		BotJavaConfig stubborn = new BotJavaConfig(context -> {
+			while (context.getRound() == 1 && !released) {
+				try {
+					Thread.sleep(10L);
+				} catch (InterruptedException e) {
+					// keeps going
+				}
+			}
+		}, "stubborn");
+		EngineConfig engineConfig = new EngineConfig();
+		engineConfig.setParallelism(2);
+		engineConfig.setTurnTimeoutMillis(200L);
+		// scripts are numbered before Java bots, so the first mover shares the
+		// stubborn bot's lane and is queued behind it
+		List<BotConfig> botConfigs = new ArrayList<>(Arrays.asList(stubborn, createMover(1), createMover(2)));
+		RubyBots rubyBots = new RubyBots(null, botConfigs, engineConfig);
+		try {
+			assertForfeited(startBattle(rubyBots), 1);
+			assertForfeited(startBattle(rubyBots), 1);
+			assertEquals(2L, rubyBots.getMetrics().getGauges().get("lanesReplaced").longValue());
+		} finally {
+			released = true;
+			rubyBots.shutdown();
+		}
+	}
+}
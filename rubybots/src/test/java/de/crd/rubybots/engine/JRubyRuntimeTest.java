@@ -0,0 +1,89 @@
+package de.crd.rubybots.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.JarFile;
+
+import javax.script.ScriptException;
+
+import de.crd.rubybots.battle.Battle;
+import de.crd.rubybots.battle.Battlefield.BattlefieldView;
+import de.crd.rubybots.battle.Context;
+import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.engine.EngineConfig.CompileMode;
+import junit.framework.TestCase;
+
+public class JRubyRuntimeTest extends TestCase {
+
+	private static final String COUNTING_BOT = "$context.storeData(($context.storedData || 0) + 1)";
+	private static final int CALLS = 50;
+
+	private static JRubyRuntime createRuntime(CompileMode compileMode) throws ScriptException {
+		JRubyRuntime runtime = new JRubyRuntime(compileMode);
+		runtime.warmUp();
+		return runtime;
+	}
+
+	/**
+	 * @return what the bot stored
+	 */
+	private static Object callRepeatedly(JRubyRuntime runtime, int scriptId) throws ScriptException {
+		Battle battle = new Battle(Arrays.asList(new BotClasspathConfig("bot.rb")));
+		for (int round = 1; round <= CALLS; round++) {
+			runtime.call(scriptId, new Context(battle, 0, round,
+					new BattlefieldView(0, 20, Collections.singletonMap(0, battle.getBot(0))), 1, 1L));
+		}
+		return battle.getBot(0).getStoredData();
+	}
+
+	public void testBotsAreParsedOnceNotOnEveryCall() throws ScriptException {
+		for (CompileMode compileMode : CompileMode.values()) {
+			JRubyRuntime runtime = createRuntime(compileMode);
+			int parsedBeforeCompile = runtime.getParsedBytes();
+			runtime.compile(1, COUNTING_BOT);
+			int parsed = runtime.getParsedBytes();
+			assertTrue(compileMode.name(), parsed > parsedBeforeCompile);
+			// replayed with fresh bindings every time
+			assertEquals(compileMode.name(), (long) CALLS, callRepeatedly(runtime, 1));
+			assertEquals(compileMode.name(), parsed, runtime.getParsedBytes());
+		}
+	}
+
+	public void testSyntaxErrorsFailTheCompilation() throws ScriptException {
+		JRubyRuntime runtime = createRuntime(CompileMode.FORCE);
+		try {
+			runtime.compile(1, "def (");
+			fail("Compiled a bot with a syntax error.");
+		} catch (RuntimeException | ScriptException e) {
+			// JRuby reports syntax errors unchecked, the engine takes both
+		}
+	}
+
+	/**
+	 * A terminated runtime closes its class loader, which must not close the jar
+	 * the kernel files of the other runtimes are loaded from.
+	 */
+	public void testClosedClassLoadersKeepTheJarOfOtherRuntimesOpen() throws ScriptException, IOException {
+		createRuntime(CompileMode.OFF);
+		String kernelFile = "jruby/kernel/range.rb";
+		URL url = getClass().getClassLoader().getResource(kernelFile);
+		JarFile jar = ((JarURLConnection) url.openConnection()).getJarFile();
+		try {
+			URL jarUrl = new File(jar.getName()).toURI().toURL();
+			try (URLClassLoader other = new URLClassLoader(new URL[] { jarUrl }, null)) {
+				other.getResourceAsStream(kernelFile).close();
+			}
+			try (InputStream in = jar.getInputStream(jar.getEntry(kernelFile))) {
+				assertTrue(in.read() >= 0);
+			}
+		} finally {
+			jar.close();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package de.crd.rubybots.engine;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.script.ScriptException;
+
+import de.crd.rubybots.battle.Battle;
+import de.crd.rubybots.battle.Battlefield.BattlefieldView;
+import de.crd.rubybots.battle.Context;
+import de.crd.rubybots.bots.BotClasspathConfig;
+import junit.framework.TestCase;
+
+public class Jsr223RuntimeTest extends TestCase {
+
+	/**
+	 * JRuby registers a JSR-223 engine as well, it gets the context as a
+	 * global.
+	 */
+	public void testRunsBotsOnTheEngineOfTheLanguage() throws ScriptException {
+		ScriptRuntime runtime = ScriptRuntime.create("rb");
+		assertTrue(runtime instanceof Jsr223Runtime);
+		assertEquals("rb", runtime.getLanguage());
+		runtime.compile(1, "$context.storeData($context.round * 2)");
+		Battle battle = new Battle(Arrays.asList(new BotClasspathConfig("bot.rb")));
+		runtime.call(1, new Context(battle, 0, 21,
+				new BattlefieldView(0, 20, Collections.singletonMap(0, battle.getBot(0))), 1, 1L));
+		assertEquals(42L, battle.getBot(0).getStoredData());
+		runtime.reset();
+		try {
+			runtime.call(1, new Context(battle, 0, 1,
+					new BattlefieldView(0, 20, Collections.singletonMap(0, battle.getBot(0))), 1, 1L));
+			fail("Bot still compiled after reset.");
+		} catch (RuntimeException | ScriptException e) {
+			// expected
+		}
+	}
+
+	public void testMissingEngine() {
+		try {
+			ScriptRuntime.create("nope");
+			fail("Runtime without engine created.");
+		} catch (ScriptException e) {
+			assertTrue(e.getMessage().contains("No script engine found for .nope bots."));
+		}
+	}
+}
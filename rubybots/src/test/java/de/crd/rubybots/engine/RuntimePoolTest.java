@@ -0,0 +1,121 @@
+package de.crd.rubybots.engine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+
+import javax.script.ScriptException;
+
+import de.crd.rubybots.battle.Battle;
+import de.crd.rubybots.battle.Battlefield.BattlefieldView;
+import de.crd.rubybots.battle.Context;
+import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.engine.EngineConfig.CompileMode;
+import junit.framework.TestCase;
+
+public class RuntimePoolTest extends TestCase {
+
+	private static final String DEFINING_BOT = "$leftover = 1\nLEFTOVER = 2\ndef leftover; end\n@leftover = 3";
+	// globals cannot be removed in Ruby, the reset sets them to nil
+	private static final String PROBING_BOT = "$context.storeData([$leftover, defined?(LEFTOVER), "
+			+ "Object.private_method_defined?(:leftover), @leftover].inspect)";
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 120000L;
+		while (!condition.getAsBoolean()) {
+			assertTrue("timed out", System.currentTimeMillis() < deadline);
+			Thread.sleep(10L);
+		}
+	}
+
+	/**
+	 * @return what the bot stored
+	 */
+	private static Object call(ScriptRuntime runtime, int scriptId) throws ScriptException {
+		Battle battle = new Battle(Arrays.asList(new BotClasspathConfig("bot.rb")));
+		runtime.call(scriptId, new Context(battle, 0, 1,
+				new BattlefieldView(0, 20, Collections.singletonMap(0, battle.getBot(0))), 1, 1L));
+		return battle.getBot(0).getStoredData();
+	}
+
+	public void testReleasedRuntimeIsReset() throws Exception {
+		RuntimePool runtimePool = new RuntimePool(1, CompileMode.JIT);
+		try {
+			waitFor(() -> runtimePool.getIdle() == 1);
+			ScriptRuntime runtime = runtimePool.acquire();
+			assertEquals(1, runtimePool.getHits());
+			assertEquals(0, runtimePool.getMisses());
+			runtime.compile(1, DEFINING_BOT);
+			runtime.compile(2, PROBING_BOT);
+			call(runtime, 1);
+			assertEquals("[1, \"constant\", true, 3]", call(runtime, 2));
+			// replenished, so the released runtime is reset and then discarded
+			waitFor(() -> runtimePool.getIdle() == 1);
+			assertEquals(2, runtimePool.getCreated());
+			runtimePool.release(runtime);
+			waitFor(() -> runtimePool.getDiscarded() == 1);
+			assertEquals(1, runtimePool.getIdle());
+			runtime.compile(2, PROBING_BOT);
+			assertEquals("[nil, nil, false, nil]", call(runtime, 2));
+		} finally {
+			runtimePool.shutdown();
+		}
+	}
+
+	public void testInstanceVariablesOfMainDoNotSurviveTheNextBorrow() throws Exception {
+		RuntimePool runtimePool = new RuntimePool(0, CompileMode.JIT);
+		try {
+			ScriptRuntime runtime = runtimePool.acquire();
+			runtime.compile(1, "@counter = (@counter || 0) + 1\n$context.storeData(@counter)");
+			assertEquals(1L, call(runtime, 1));
+			assertEquals(2L, call(runtime, 1));
+			runtime.reset();
+			runtime.compile(1, "@counter = (@counter || 0) + 1\n$context.storeData(@counter)");
+			assertEquals(1L, call(runtime, 1));
+		} finally {
+			runtimePool.shutdown();
+		}
+	}
+
+	public void testReopenedCoreClassesFailTheReset() throws Exception {
+		RuntimePool runtimePool = new RuntimePool(0, CompileMode.JIT);
+		try {
+			ScriptRuntime runtime = runtimePool.acquire();
+			runtime.compile(1, "class String; def length; 0; end; end");
+			call(runtime, 1);
+			try {
+				runtime.reset();
+				fail("reset a runtime with a reopened core class");
+			} catch (ScriptException e) {
+				// expected
+			}
+			// aliasing a built-in method is caught as well
+			runtime = runtimePool.acquire();
+			runtime.compile(1, "class Array; alias_method :size, :first; end");
+			call(runtime, 1);
+			try {
+				runtime.reset();
+				fail("reset a runtime with an aliased core method");
+			} catch (ScriptException e) {
+				// expected
+			}
+		} finally {
+			runtimePool.shutdown();
+		}
+	}
+
+	public void testEmptyPoolCreatesOnDemand() throws Exception {
+		RuntimePool runtimePool = new RuntimePool(0, CompileMode.JIT);
+		try {
+			ScriptRuntime runtime = runtimePool.acquire();
+			assertEquals(0, runtimePool.getHits());
+			assertEquals(1, runtimePool.getMisses());
+			assertEquals(1, runtimePool.getCreated());
+			runtimePool.release(runtime);
+			waitFor(() -> runtimePool.getDiscarded() == 1);
+			assertEquals(0, runtimePool.getIdle());
+		} finally {
+			runtimePool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package de.crd.rubybots.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+public class EventLogTest extends TestCase {
+
+	private final EventLog log = EventLog.getLog(EventLogTest.class);
+	private final Logger logger = Logger.getLogger(EventLogTest.class.getSimpleName());
+	private final List<LogRecord> records = new ArrayList<>();
+	private final Handler handler = new Handler() {
+
+		@Override
+		public void publish(LogRecord record) {
+			records.add(record);
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	@Override
+	protected void setUp() {
+		logger.addHandler(handler);
+	}
+
+	@Override
+	protected void tearDown() {
+		logger.removeHandler(handler);
+		logger.setLevel(null);
+	}
+
+	public void testMessagesAreNotBuiltWhenDisabled() {
+		BattleTrace trace = new BattleTrace("battle");
+		assertFalse(log.isEnabled(trace));
+		log.log(trace, () -> {
+			throw new AssertionError("message built");
+		});
+		assertTrue(records.isEmpty());
+	}
+
+	public void testTracedBattleLogsAtInfo() {
+		BattleTrace trace = new BattleTrace("battle");
+		trace.setEnabled(true);
+		assertTrue(log.isEnabled(trace));
+		log.log(trace, () -> "traced");
+		// other battles stay quiet
+		log.log(new BattleTrace("other"), "untraced");
+		assertEquals(1, records.size());
+		assertEquals(Level.INFO, records.get(0).getLevel());
+		assertEquals("[battle] traced", records.get(0).getMessage());
+		assertEquals(EventLogTest.class.getName(), records.get(0).getSourceClassName());
+	}
+
+	public void testFineEnablesEveryBattle() {
+		logger.setLevel(Level.FINE);
+		BattleTrace trace = new BattleTrace("battle");
+		assertTrue(log.isEnabled(trace));
+		log.log(trace, "untraced");
+		assertEquals(1, records.size());
+		assertEquals(Level.FINE, records.get(0).getLevel());
+		assertEquals("untraced", records.get(0).getMessage());
+	}
+}
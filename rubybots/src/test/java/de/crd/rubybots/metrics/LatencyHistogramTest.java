@@ -0,0 +1,28 @@
+package de.crd.rubybots.metrics;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+
+	public void testBucketsCoverValues() {
+		for (long value = 0; value < 1000000L; value = value * 3 / 2 + 1) {
+			int index = LatencyHistogram.getIndex(value);
+			assertTrue(value <= LatencyHistogram.getHighestEquivalentValue(index));
+			assertTrue(index == 0 || value > LatencyHistogram.getHighestEquivalentValue(index - 1));
+		}
+		assertTrue(LatencyHistogram.getIndex(Long.MAX_VALUE) >= 0);
+	}
+
+	public void testPercentilesWithinPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 10000; value++) {
+			histogram.record(value * 1000L);
+		}
+		assertEquals(10000, histogram.getCount());
+		assertEquals(10000000L, histogram.getMax());
+		assertEquals(5000500L, histogram.getMean());
+		long median = histogram.getValueAtPercentile(50.0);
+		assertTrue(median >= 5000000L && median <= 5000000L * 107 / 100);
+		assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100.0));
+	}
+}
@@ -0,0 +1,45 @@
+package de.crd.rubybots.metrics;
+
+import junit.framework.TestCase;
+
+public class MetricsTest extends TestCase {
+
+	private static final long SECOND = 1000000000L;
+
+	private static void recordRounds(Metrics metrics, int rounds) {
+		for (int i = 0; i < rounds; i++) {
+			metrics.recordRound();
+		}
+	}
+
+	public void testRoundsPerSecondIsSameForEveryReader() {
+		Metrics metrics = new Metrics();
+		long now = System.nanoTime();
+		recordRounds(metrics, 100);
+		assertEquals(20.0, metrics.getRoundsPerSecond(now + 5 * SECOND), 0.1);
+		assertEquals(20.0, metrics.getRoundsPerSecond(now + 5 * SECOND), 0.1);
+		// starts a new window, still measured since the start
+		assertEquals(10.0, metrics.getRoundsPerSecond(now + 10 * SECOND), 0.1);
+		recordRounds(metrics, 50);
+		assertEquals(10.0, metrics.getRoundsPerSecond(now + 15 * SECOND), 0.1);
+		assertEquals(10.0, metrics.getRoundsPerSecond(now + 15 * SECOND), 0.1);
+		// measured since the window started at 10 seconds
+		assertEquals(5.0, metrics.getRoundsPerSecond(now + 20 * SECOND), 0.1);
+		assertEquals(5.0, metrics.getRoundsPerSecond(now + 20 * SECOND), 0.1);
+	}
+
+	public void testBotCallsAreCountedByBackend() {
+		Metrics metrics = new Metrics();
+		metrics.registerBot(0, "ruby 1", "rb");
+		metrics.registerBot(1, "java", "java");
+		metrics.registerBot(2, "ruby 2", "rb");
+		metrics.recordBotCall(0, 1000L, -1L, false);
+		metrics.recordBotCall(2, 3000L, -1L, false);
+		metrics.recordBotCall(1, 10L, -1L, false);
+		assertEquals(2L, metrics.getBotCallsByBackend().get("rb").longValue());
+		assertEquals(1L, metrics.getBotCallsByBackend().get("java").longValue());
+		assertEquals(3L, metrics.getBotCalls());
+		assertTrue(metrics.getBotCallLatencyP99ByBackend().get("rb") >= 3000L);
+		assertTrue(metrics.getBotCallLatencyP99ByBackend().get("java") < 1000L);
+	}
+}
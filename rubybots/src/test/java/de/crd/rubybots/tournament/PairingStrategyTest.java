@@ -0,0 +1,117 @@
+package de.crd.rubybots.tournament;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import de.crd.rubybots.bots.BotClasspathConfig;
+import de.crd.rubybots.bots.BotConfig;
+import junit.framework.TestCase;
+
+public class PairingStrategyTest extends TestCase {
+
+	private static List<BotConfig> createBots(int numberOfBots) {
+		List<BotConfig> botConfigs = new ArrayList<>();
+		for (int i = 0; i < numberOfBots; i++) {
+			botConfigs.add(new BotClasspathConfig("bot" + i + ".rb"));
+		}
+		return botConfigs;
+	}
+
+	private static void assertBattles(List<List<BotConfig>> battles, int botsPerBattle) {
+		for (List<BotConfig> battle : battles) {
+			assertEquals(botsPerBattle, battle.size());
+			assertEquals("bots fight themselves", botsPerBattle, new HashSet<>(battle).size());
+		}
+	}
+
+	public void testRoundRobinPairsEveryCombination() {
+		List<BotConfig> botConfigs = createBots(5);
+		PairingStrategy pairing = PairingStrategy.roundRobin(3, 2);
+		Leaderboard leaderboard = new Leaderboard(botConfigs);
+		List<List<BotConfig>> battles = pairing.nextBattles(botConfigs, leaderboard);
+		// 5 choose 3, twice
+		assertEquals(20, battles.size());
+		assertBattles(battles, 3);
+		Map<Set<BotConfig>, Integer> meetings = new HashMap<>();
+		for (List<BotConfig> battle : battles) {
+			meetings.merge(new HashSet<>(battle), 1, Integer::sum);
+		}
+		assertEquals(10, meetings.size());
+		for (int count : meetings.values()) {
+			assertEquals(2, count);
+		}
+		assertTrue(pairing.nextBattles(botConfigs, leaderboard).isEmpty());
+	}
+
+	public void testSwissPairsEveryBotOncePerRound() {
+		List<BotConfig> botConfigs = createBots(6);
+		PairingStrategy pairing = PairingStrategy.swiss(2, 3, new Random(1L));
+		Leaderboard leaderboard = new Leaderboard(botConfigs);
+		for (int round = 0; round < 3; round++) {
+			List<List<BotConfig>> battles = pairing.nextBattles(botConfigs, leaderboard);
+			assertEquals(3, battles.size());
+			assertBattles(battles, 2);
+			Set<BotConfig> playing = new HashSet<>();
+			for (List<BotConfig> battle : battles) {
+				playing.addAll(battle);
+				leaderboard.record(battle, battle.get(0));
+			}
+			assertEquals(new HashSet<>(botConfigs), playing);
+		}
+		assertTrue(pairing.nextBattles(botConfigs, leaderboard).isEmpty());
+	}
+
+	public void testSwissPairsBotsWithSimilarResults() {
+		List<BotConfig> botConfigs = createBots(4);
+		Leaderboard leaderboard = new Leaderboard(botConfigs);
+		leaderboard.record(Arrays.asList(botConfigs.get(0), botConfigs.get(1)), botConfigs.get(0));
+		leaderboard.record(Arrays.asList(botConfigs.get(2), botConfigs.get(3)), botConfigs.get(3));
+		List<List<BotConfig>> battles = PairingStrategy.swiss(2, 1, new Random(1L)).nextBattles(botConfigs,
+				leaderboard);
+		assertEquals(2, battles.size());
+		assertEquals(new HashSet<>(Arrays.asList(botConfigs.get(0), botConfigs.get(3))), new HashSet<>(battles.get(0)));
+		assertEquals(new HashSet<>(Arrays.asList(botConfigs.get(1), botConfigs.get(2))), new HashSet<>(battles.get(1)));
+	}
+
+	public void testRandomPairingCoversAllBots() {
+		List<BotConfig> botConfigs = createBots(7);
+		PairingStrategy pairing = PairingStrategy.random(3, 50, new Random(1L));
+		Leaderboard leaderboard = new Leaderboard(botConfigs);
+		List<List<BotConfig>> battles = pairing.nextBattles(botConfigs, leaderboard);
+		assertEquals(50, battles.size());
+		assertBattles(battles, 3);
+		Set<BotConfig> playing = new HashSet<>();
+		for (List<BotConfig> battle : battles) {
+			playing.addAll(battle);
+		}
+		assertEquals(new HashSet<>(botConfigs), playing);
+		assertTrue(pairing.nextBattles(botConfigs, leaderboard).isEmpty());
+	}
+
+	public void testLeaderboardScoresWinsAndDraws() {
+		List<BotConfig> botConfigs = createBots(3);
+		Leaderboard leaderboard = new Leaderboard(botConfigs);
+		leaderboard.record(Arrays.asList(botConfigs.get(0), botConfigs.get(1)), botConfigs.get(1));
+		leaderboard.record(Arrays.asList(botConfigs.get(1), botConfigs.get(2)), null);
+		leaderboard.record(Arrays.asList(botConfigs.get(0), botConfigs.get(2)), botConfigs.get(2));
+		assertEquals(3, leaderboard.getNumberOfBattles());
+		List<Leaderboard.Entry> ranking = leaderboard.getRanking();
+		assertEquals(3, ranking.size());
+		for (Leaderboard.Entry entry : ranking) {
+			assertEquals(2, entry.getBattles());
+		}
+		assertEquals(0, leaderboard.getWins(botConfigs.get(0)));
+		assertEquals(1, leaderboard.getWins(botConfigs.get(1)));
+		assertEquals(1, ranking.get(0).getWins());
+		assertEquals(1, ranking.get(0).getDraws());
+		assertEquals(0.5, ranking.get(0).getWinRate(), 1e-9);
+		assertSame(botConfigs.get(0), ranking.get(2).getBotConfig());
+		assertEquals(0, ranking.get(2).getDraws());
+	}
+}